@@ -0,0 +1,289 @@
+package dk.easv;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.OffHeapMctsBot;
+import dk.easv.bll.game.MoveWatchdog;
+import dk.easv.bll.game.stats.GameLogAnalyzer;
+import dk.easv.bll.game.stats.GameRecorder;
+import dk.easv.bll.game.stats.PositionStats;
+import dk.easv.bll.simulation.OpeningSuite;
+import dk.easv.bll.simulation.ResultBatcher;
+import dk.easv.bll.simulation.Simulation;
+import dk.easv.bll.simulation.SimulationResult;
+import dk.easv.bll.simulation.Sprt;
+import dk.easv.bll.simulation.Tournament;
+import dk.easv.bll.simulation.TournamentResult;
+import dk.easv.dal.DynamicBotClassHandler;
+import dk.easv.dal.GameLogReader;
+import dk.easv.dal.GameLogWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs bot vs bot simulations and tournaments from the command line, without starting JavaFX.
+ * Meant for servers without a display, e.g. nightly strength tests.
+ *
+ * Usage: HeadlessMain --bot1 NAME --bot2 NAME [--games N] [--threads N] [--time MS] [--budget wall|cpu]
+ *                     [--grace MS] [--penalty forfeit|random|none] [--sprt ELO0,ELO1[,ALPHA,BETA]] [--out FILE]
+ *        HeadlessMain --tournament GAMES_PER_PAIRING [--bots NAME,NAME,...] [--schedule even|adaptive] ...
+ *        HeadlessMain --generate-openings FILE [--count N] [--plies N] [--seed N]
+ *        HeadlessMain --analyze FILE
+ * Bots are found by class name or bot name. A bot that takes longer than the time per move plus the grace period
+ * loses the game, or gets a random move with --penalty random. With --penalty none the bots can take any time.
+ * With --budget cpu the time per move is counted as CPU time of the bot thread, so running more threads than
+ * cores does not take thinking time away from the bots.
+ * With --sprt the match stops as soon as a Sequential Probability Ratio Test decides whether bot1 is ELO0 or ELO1
+ * stronger than bot2, --games is then the most games played. The LLR is printed every second while playing.
+ * With --out a line of comma separated results is appended to the file.
+ * With --tournament every bot, or every bot given with --bots, plays every other bot, and the ratings and
+ * cross-table are printed. With --schedule adaptive the same total number of games goes mostly to the pairings
+ * whose result is still uncertain, instead of evenly to all pairings.
+ * With --openings FILE matches and tournaments start from the openings in the file, made with --generate-openings,
+ * every opening played once with each bot moving first.
+ * With --log FILE the moves of every game are appended to a binary game log, see GameLogWriter.
+ * With --analyze the games of a log are replayed, and statistics on first move advantage, openings,
+ * game length and the order the micro boards are decided in are printed.
+ * With --positions FILE the positions of the games played or analysed are counted by move number, micro boards
+ * won and free moves, a summary with win probabilities is printed and all counts are written to the CSV file.
+ * With --seed every game gets a seed derived from it, and bots that take their randomness from the game state
+ * play the same moves again when run with the same seed. With --playouts searching bots stop after that many
+ * playouts per move instead of searching for the time per move, so together the results do not depend on the
+ * machine or its load.
+ * With --offheap-mb N the off-heap MCTS bot keeps a tree of N MB per thread outside of the Java heap.
+ * With --checkpoint FILE a tournament saves its state every --checkpoint-seconds (60 by default), and a tournament
+ * started again with the same file and options continues where the last one stopped.
+ * Like the GUI it must be started from the project folder, as the bots are found in src/dk/easv/bll/bot.
+ */
+public class HeadlessMain {
+
+    private static final String USAGE =
+            "Usage: HeadlessMain --bot1 NAME --bot2 NAME [--games N] [--threads N] [--time MS] [--budget wall|cpu]"
+            + " [--grace MS] [--penalty forfeit|random|none] [--sprt ELO0,ELO1[,ALPHA,BETA]] [--out FILE]\n"
+            + "       HeadlessMain --tournament GAMES_PER_PAIRING [--bots NAME,NAME,...] [--schedule even|adaptive]"
+            + " [--threads N] [--time MS] [--budget wall|cpu] [--grace MS] [--penalty forfeit|random|none]"
+            + " [--checkpoint FILE [--checkpoint-seconds N]]\n"
+            + "       HeadlessMain --generate-openings FILE [--count N] [--plies N] [--seed N]\n"
+            + "       HeadlessMain --analyze FILE\n"
+            + "Matches and tournaments also take [--openings FILE] [--log FILE] [--positions FILE] [--seed N]"
+            + " [--playouts N] [--offheap-mb N],"
+            + " --analyze takes [--positions FILE]";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("generate-openings")) {
+            generateOpenings(options);
+            return;
+        }
+        if (options.containsKey("analyze")) {
+            analyze(options.get("analyze"), options.get("positions"));
+            return;
+        }
+        boolean tournament = options.containsKey("tournament");
+        if (!tournament && (!options.containsKey("bot1") || !options.containsKey("bot2"))) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        // Read by the bot when it is created, so it must be set before the bots are loaded
+        if (options.containsKey("offheap-mb"))
+            System.setProperty(OffHeapMctsBot.SIZE_PROPERTY, "" + Long.parseLong(options.get("offheap-mb")));
+        List<IBot> bots = DynamicBotClassHandler.loadBotList();
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                "" + Runtime.getRuntime().availableProcessors()));
+        int timePerMove = Integer.parseInt(options.getOrDefault("time", "1000"));
+
+        int grace = Integer.parseInt(options.getOrDefault("grace", "200"));
+        String penalty = options.getOrDefault("penalty", "forfeit");
+        MoveWatchdog watchdog = penalty.equalsIgnoreCase("none") ? null : new MoveWatchdog(grace, parsePenalty(penalty));
+        String budget = options.getOrDefault("budget", "wall");
+        if (!budget.equalsIgnoreCase("wall") && !budget.equalsIgnoreCase("cpu"))
+            throw new IllegalArgumentException("Unknown budget " + budget + "\n" + USAGE);
+        boolean cpuTimeBudget = budget.equalsIgnoreCase("cpu");
+        OpeningSuite openings = options.containsKey("openings")
+                ? OpeningSuite.load(Paths.get(options.get("openings"))) : null;
+
+        GameLogWriter gameLog = options.containsKey("log") ? new GameLogWriter(Paths.get(options.get("log"))) : null;
+        PositionStats positions = options.containsKey("positions") ? new PositionStats() : null;
+        GameRecorder recorder = gameLog == null ? positions : positions == null ? gameLog
+                : (player0, player1, winner, seed, durationNanos, moves) -> {
+                    gameLog.record(player0, player1, winner, seed, durationNanos, moves);
+                    positions.record(player0, player1, winner, seed, durationNanos, moves);
+                };
+        try {
+            if (tournament)
+                runTournament(options, bots, threads, timePerMove, watchdog, cpuTimeBudget, openings, recorder);
+            else
+                runMatch(options, bots, threads, timePerMove, watchdog, cpuTimeBudget, openings, recorder);
+        }
+        finally {
+            if (gameLog != null)
+                gameLog.close();
+        }
+        if (positions != null)
+            writePositions(positions, options.get("positions"));
+    }
+
+    private static void runMatch(Map<String, String> options, List<IBot> bots, int threads, int timePerMove,
+                                 MoveWatchdog watchdog, boolean cpuTimeBudget, OpeningSuite openings,
+                                 GameRecorder recorder) throws IOException, InterruptedException {
+        IBot bot1 = findBot(bots, options.get("bot1"));
+        IBot bot2 = findBot(bots, options.get("bot2"));
+        int games = Integer.parseInt(options.getOrDefault("games", "100"));
+
+        Simulation simulation = new Simulation(bot1.getClass(), bot2.getClass(), games, threads, timePerMove);
+        simulation.setWatchdog(watchdog);
+        simulation.setCpuTimeBudget(cpuTimeBudget);
+        simulation.setOpenings(openings);
+        simulation.setSeed(Long.parseLong(options.getOrDefault("seed", "0")));
+        simulation.setPlayoutBudget(Integer.parseInt(options.getOrDefault("playouts", "0")));
+        simulation.setRecorder(recorder);
+
+        ResultBatcher<Object> progress = null;
+        if (options.containsKey("sprt")) {
+            Sprt sprt = Sprt.parse(options.get("sprt"));
+            simulation.setSprt(sprt);
+            System.out.println(sprt);
+            progress = new ResultBatcher<>(batch -> System.out.println(
+                    simulation.getCompletedGames() + " games | " + sprt.describe(simulation.snapshot())), 1000);
+            simulation.setOnGameResult(progress::add);
+        }
+        SimulationResult result = simulation.run();
+        if (progress != null)
+            progress.stop();
+        System.out.println(result + " | " + result.getGames() + " games in " + result.getElapsedMillis() + " ms"
+                + cachedGames(simulation.getCachedGames()));
+        if (simulation.getSprt() != null)
+            System.out.println(simulation.getSprt().describe(result));
+
+        if (options.containsKey("out"))
+            appendResult(options.get("out"), result, threads, timePerMove);
+    }
+
+    private static void runTournament(Map<String, String> options, List<IBot> bots, int threads, int timePerMove,
+                                      MoveWatchdog watchdog, boolean cpuTimeBudget, OpeningSuite openings,
+                                      GameRecorder recorder) throws IOException {
+        List<Class<? extends IBot>> entrants = new ArrayList<>();
+        if (options.containsKey("bots"))
+            for (String name : options.get("bots").split(","))
+                entrants.add(findBot(bots, name.trim()).getClass());
+        else
+            for (IBot bot : bots)
+                entrants.add(bot.getClass());
+
+        Tournament tournament = new Tournament(entrants,
+                Integer.parseInt(options.get("tournament")), threads, timePerMove);
+        tournament.setWatchdog(watchdog);
+        tournament.setCpuTimeBudget(cpuTimeBudget);
+        tournament.setOpenings(openings);
+        tournament.setSeed(Long.parseLong(options.getOrDefault("seed", "0")));
+        tournament.setPlayoutBudget(Integer.parseInt(options.getOrDefault("playouts", "0")));
+        tournament.setRecorder(recorder);
+        String schedule = options.getOrDefault("schedule", "even");
+        if (!schedule.equalsIgnoreCase("even") && !schedule.equalsIgnoreCase("adaptive"))
+            throw new IllegalArgumentException("Unknown schedule " + schedule + "\n" + USAGE);
+        tournament.setAdaptive(schedule.equalsIgnoreCase("adaptive"));
+        if (options.containsKey("checkpoint")) {
+            Path checkpoint = Paths.get(options.get("checkpoint"));
+            tournament.setCheckpoint(checkpoint,
+                    1000 * Long.parseLong(options.getOrDefault("checkpoint-seconds", "60")));
+            if (Files.exists(checkpoint)) {
+                tournament.resume(checkpoint);
+                System.out.println("Resuming from " + checkpoint + " with " + tournament.snapshot().getGames()
+                        + " of " + tournament.getGames() + " games done");
+            }
+        }
+        TournamentResult result = tournament.run();
+        System.out.print(result.toCrossTable());
+        System.out.println(result.getGames() + " games in " + result.getElapsedMillis() + " ms"
+                + cachedGames(tournament.getCachedGames()));
+    }
+
+    private static void generateOpenings(Map<String, String> options) throws IOException {
+        int count = Integer.parseInt(options.getOrDefault("count", "500"));
+        int plies = Integer.parseInt(options.getOrDefault("plies", "4"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "" + System.nanoTime()));
+        OpeningSuite openings = OpeningSuite.generate(count, plies, 0.1, seed);
+        openings.save(Paths.get(options.get("generate-openings")));
+        System.out.println(count + " openings of " + plies + " moves written to " + options.get("generate-openings"));
+    }
+
+    private static void analyze(String file, String positionsFile) throws IOException {
+        long start = System.currentTimeMillis();
+        GameLogAnalyzer analyzer = new GameLogAnalyzer();
+        try (GameLogReader log = new GameLogReader(Paths.get(file))) {
+            analyzer.addAll(log);
+        }
+        System.out.print(analyzer.toReport());
+        System.out.println(analyzer.getGames() + " games analysed in " + (System.currentTimeMillis() - start) + " ms");
+        if (positionsFile != null) {
+            PositionStats positions = new PositionStats();
+            try (GameLogReader log = new GameLogReader(Paths.get(file))) {
+                positions.addAll(log);
+            }
+            writePositions(positions, positionsFile);
+        }
+    }
+
+    private static void writePositions(PositionStats positions, String file) throws IOException {
+        System.out.println();
+        System.out.print(positions.toReport());
+        try (Writer out = Files.newBufferedWriter(Paths.get(file))) {
+            positions.writeCsv(out);
+        }
+        System.out.println("Position counts written to " + file);
+    }
+
+    private static String cachedGames(long cached) {
+        return cached == 0 ? "" : ", " + cached + " of them between deterministic bots counted from a known outcome";
+    }
+
+    /**
+     * Reads arguments of the form --name value.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length)
+                throw new IllegalArgumentException("Unexpected argument " + args[i] + "\n" + USAGE);
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    static MoveWatchdog.Penalty parsePenalty(String penalty) {
+        if (penalty.equalsIgnoreCase("forfeit"))
+            return MoveWatchdog.Penalty.FORFEIT;
+        if (penalty.equalsIgnoreCase("random"))
+            return MoveWatchdog.Penalty.RANDOM_MOVE;
+        throw new IllegalArgumentException("Unknown penalty " + penalty + "\n" + USAGE);
+    }
+
+    static IBot findBot(List<IBot> bots, String name) {
+        for (IBot bot : bots)
+            if (bot.getClass().getSimpleName().equalsIgnoreCase(name) || bot.getBotName().equalsIgnoreCase(name))
+                return bot;
+        throw new IllegalArgumentException("No bot called " + name);
+    }
+
+    private static void appendResult(String file, SimulationResult result, int threads, int timePerMove)
+            throws IOException {
+        String line = LocalDateTime.now() + "," + result.getBot1() + "," + result.getBot2() + ","
+                + result.getGames() + "," + result.getWinsBot1() + "," + result.getWinsBot2() + ","
+                + result.getTies() + "," + threads + "," + timePerMove + "," + result.getElapsedMillis() + ","
+                + result.getCostBot1().getCpuNanos() + "," + result.getCostBot1().getAllocatedBytes() + ","
+                + result.getCostBot2().getCpuNanos() + "," + result.getCostBot2().getAllocatedBytes();
+        Files.write(Paths.get(file), Collections.singletonList(line),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -12,7 +12,7 @@ import java.util.Random;
 
 public class AiQaeda implements IBot {
 
-    private Random rand = new Random();
+    private Random rand;
     private final int moveTimeMs = 1000;
     private final String BOT_NAME = getClass().getSimpleName();
 
@@ -21,6 +21,7 @@ public class AiQaeda implements IBot {
 
     @Override
     public IMove doMove(IGameState state) {
+        rand = state.newRandom();
         return calculateMove(state, moveTimeMs);
     }
 
@@ -0,0 +1,40 @@
+package dk.easv.bll.bot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tells the simulator how a bot may be shared between games played at the same time.
+ * Bots without it get an instance per simulation thread, which is safe for bots that keep state between moves
+ * but not between games.
+ *
+ * Example: a bot that keeps no state of its own, or only thread safe state, can be shared by all threads
+ * <pre>
+ * {@literal @}BotConcurrency(BotConcurrency.Model.SHARED)
+ * public class MyBot implements IBot { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface BotConcurrency {
+
+    enum Model {
+        /**
+         * One instance is used by all threads at the same time, so doMove must be thread safe.
+         * Best for bots that are expensive to create, e.g. ones loading an opening book.
+         */
+        SHARED,
+        /**
+         * Every simulation thread gets its own instance, used for one game after the other.
+         */
+        PER_THREAD,
+        /**
+         * Every game gets a new instance, for bots that remember things about the game they are playing.
+         */
+        PER_GAME
+    }
+
+    Model value();
+}
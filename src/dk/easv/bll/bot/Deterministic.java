@@ -0,0 +1,22 @@
+package dk.easv.bll.bot;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tells the simulator that a bot always plays the same move in the same position, no matter the time per move,
+ * earlier games or anything else. The simulator then remembers the moves of the bot by position, and when two
+ * such bots meet it stops replaying their game once it has seen the same outcome twice in a row.
+ *
+ * It is not inherited, as a subclass may well add randomness, so every deterministic bot declares it itself.
+ * <pre>
+ * {@literal @}Deterministic
+ * public class MyBot implements IBot { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Deterministic {
+}
@@ -11,6 +11,8 @@ package dk.easv.bll.bot;
  *
  * @author jeppjleemoritzled
  */
+@BotConcurrency(BotConcurrency.Model.SHARED)
+@Deterministic
 public class DrunkenBot extends LocalPrioritisedListBot {
     private static final String BOTNAME="Drunken Bot";
     
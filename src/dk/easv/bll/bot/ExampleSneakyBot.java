@@ -31,9 +31,12 @@ public class ExampleSneakyBot implements IBot {
     // Plays single games until it wins and returns the first move for that. If iterations reached with no clear win, just return random valid move
     private IMove calculateWinningMove(IGameState state, int maxTimeMs){
         long time = System.currentTimeMillis();
-        Random rand = new Random();
+        Random rand = state.newRandom();
         int count = 0;
-        while (System.currentTimeMillis() < time + maxTimeMs) { // check how much time has passed, stop if over maxTimeMs
+        // check how much time has passed, stop if over maxTimeMs or the time per move of the game is used up,
+        // or after the playout budget if the game has one, so seeded games play out the same on any machine
+        while (state.getPlayoutBudget() > 0 ? count < state.getPlayoutBudget()
+                : System.currentTimeMillis() < time + maxTimeMs && state.getRemainingTimeNanos() > 0) {
             GameSimulator simulator = createSimulator(state);
             IGameState gs = simulator.getCurrentState();
             List<IMove> moves = gs.getField().getAvailableMoves();
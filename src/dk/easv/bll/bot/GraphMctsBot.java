@@ -0,0 +1,19 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.bot.mcts.GraphSearch;
+import dk.easv.bll.bot.mcts.SearchBot;
+
+import java.util.Random;
+
+/**
+ * Monte Carlo search on a graph instead of a tree, positions reached by different move orders share
+ * one node and its statistics.
+ */
+@BotConcurrency(BotConcurrency.Model.PER_THREAD)
+public class GraphMctsBot extends SearchBot {
+    private static final String BOTNAME = "Graph MCTS";
+
+    public GraphMctsBot() {
+        super(BOTNAME, new GraphSearch(new Random()));
+    }
+}
@@ -0,0 +1,30 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.bot.mcts.HeuristicPrior;
+import dk.easv.bll.bot.mcts.MctsSearch;
+import dk.easv.bll.bot.mcts.SearchBot;
+
+import java.util.Random;
+
+/**
+ * The RAVE search of RaveMctsBot, guided by the rules of the simple bots.
+ * Those rules rank the moves, the search looks at the best ranked moves first and only widens to the
+ * rest as a position gets more visits.
+ */
+@BotConcurrency(BotConcurrency.Model.PER_THREAD)
+public class HeuristicMctsBot extends SearchBot {
+    private static final String BOTNAME = "Heuristic MCTS";
+    private static final int NODE_BUDGET = 1 << 21; //About 70 MB, also for long analysis time controls
+
+    public HeuristicMctsBot() {
+        super(BOTNAME, newSearch());
+    }
+
+    private static MctsSearch newSearch() {
+        MctsSearch search = new MctsSearch(new Random());
+        search.getTree().setNodeBudget(NODE_BUDGET);
+        search.setPrior(new HeuristicPrior());
+        search.setWidening(2, 0.5);
+        return search;
+    }
+}
@@ -14,6 +14,8 @@ public interface IBot {
 
     /**
      * Makes a turn. Implement this method to make your dk.easv.bll.bot do something.
+     * A bot that runs out of time is interrupted, so a bot that searches in a loop should stop when
+     * Thread.currentThread().isInterrupted() is true.
      *
      * @param state the current dk.easv.bll.game state
      * @return The column where the turn was made.
@@ -12,7 +12,7 @@ import java.util.Random;
 
 public class InsaneBotNoAi implements IBot {
 
-    private Random rand = new Random();
+    private Random rand;
     private final int moveTimeMs = 1000;
     private final String BOT_NAME = getClass().getSimpleName();
 
@@ -32,6 +32,7 @@ public class InsaneBotNoAi implements IBot {
      * @return The calculated move.
      */
     private IMove calculateMove(IGameState state, int maxTimeMs) {
+        rand = state.newRandom();
         // Create a simulator to simulate the current state of the game
         GameSimulator simulator = createSimulator(state);
 
@@ -8,6 +8,8 @@ import dk.easv.bll.move.Move;
 
 
 
+@BotConcurrency(BotConcurrency.Model.SHARED)
+@Deterministic
 public class LocalPrioritisedListBot implements IBot {
 
     private static final String BOTNAME = "Local Prio ListBot";
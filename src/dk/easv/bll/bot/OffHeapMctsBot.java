@@ -0,0 +1,39 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.bot.mcts.MctsSearch;
+import dk.easv.bll.bot.mcts.OffHeapTree;
+import dk.easv.bll.bot.mcts.SearchBot;
+
+import java.util.Random;
+
+/**
+ * The search of RaveMctsBot with its nodes outside of the Java heap, for long thinking times.
+ * A tree of tens of millions of nodes on the heap makes the garbage collector pause long enough to miss the
+ * time per move, off the heap the pauses do not grow with the tree.
+ *
+ * The size of the tree is read from the system property uttt.offheap.mb when the bot is created. By default it is
+ * a quarter of the direct memory the JVM allows shared by the processors, at most 256 MB, about 7 million nodes.
+ * HeadlessMain sets it with --offheap-mb. Every thread searching with the bot uses that much direct memory,
+ * so -XX:MaxDirectMemorySize must allow it. The memory is reserved when the bot is created, not on its first move.
+ */
+@BotConcurrency(BotConcurrency.Model.PER_THREAD)
+public class OffHeapMctsBot extends SearchBot {
+    public static final String SIZE_PROPERTY = "uttt.offheap.mb";
+
+    private static final String BOTNAME = "RAVE MCTS off-heap";
+    private static final long MAX_DEFAULT_MB = 256;
+
+    public OffHeapMctsBot() {
+        this(OffHeapTree.ofBytes(Long.getLong(SIZE_PROPERTY, defaultMegabytes()) << 20));
+    }
+
+    private OffHeapMctsBot(OffHeapTree tree) {
+        super(BOTNAME, new MctsSearch(new Random(), tree));
+        tree.reserve();
+    }
+
+    private static long defaultMegabytes() {
+        long perProcessor = OffHeapTree.maxDirectMemory() / 4 / Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(MAX_DEFAULT_MB, perProcessor >> 20));
+    }
+}
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+@BotConcurrency(BotConcurrency.Model.SHARED)
+@Deterministic
 public class PrioListOnSteroids extends LocalPrioritisedListBot {
     private static final String BOTNAME = "PrioList on Steroids";
 
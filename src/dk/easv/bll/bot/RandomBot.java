@@ -5,13 +5,11 @@ import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
 
 import java.util.List;
-import java.util.Random;
 
+@BotConcurrency(BotConcurrency.Model.SHARED)
 public class RandomBot implements IBot {
 
     private static final String BOTNAME = "Random Dude";
-    private Random rand = new Random();
-
     /**
      * Makes a turn. Edit this method to make your bot smarter.
      * Currently does only random moves.
@@ -22,7 +20,8 @@ public class RandomBot implements IBot {
     public IMove doMove(IGameState state) {
         List<IMove> moves = state.getField().getAvailableMoves();
         if (moves.size() > 0) {
-            return moves.get(rand.nextInt(moves.size())); /* get random move from available moves */
+            // The move seed is already well mixed, so no Random has to be created for every move
+            return moves.get(Math.floorMod(state.getMoveSeed(), moves.size())); /* get random move from available moves */
         }
 
         return null;
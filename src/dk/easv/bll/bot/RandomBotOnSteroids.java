@@ -7,12 +7,10 @@ import dk.easv.bll.move.IMove;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
+@BotConcurrency(BotConcurrency.Model.SHARED)
 public class RandomBotOnSteroids implements IBot {
     private static final String BOTNAME = "Random on Steroids";
-    Random rand = new Random();
-
     @Override
     public IMove doMove(IGameState state) {
         List<IMove> winMoves = getWinningMoves(state);
@@ -20,7 +18,8 @@ public class RandomBotOnSteroids implements IBot {
             return winMoves.get(0);
         List<IMove> moves = state.getField().getAvailableMoves();
         if (moves.size() > 0) {
-            return moves.get(rand.nextInt(moves.size())); /* get random move from available moves */
+            // The move seed is already well mixed, so no Random has to be created for every move
+            return moves.get(Math.floorMod(state.getMoveSeed(), moves.size())); /* get random move from available moves */
         }
 
         return null;
@@ -0,0 +1,26 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.bot.mcts.MctsSearch;
+import dk.easv.bll.bot.mcts.SearchBot;
+
+import java.util.Random;
+
+/**
+ * Monte Carlo Tree Search bot using RAVE, so every playout teaches it about more than the one move tried.
+ * It converges on good moves in far fewer playouts than plain UCT, which matters most on slow machines.
+ */
+@BotConcurrency(BotConcurrency.Model.PER_THREAD)
+public class RaveMctsBot extends SearchBot {
+    private static final String BOTNAME = "RAVE MCTS";
+    private static final int NODE_BUDGET = 1 << 21; //About 70 MB, also for long analysis time controls
+
+    public RaveMctsBot() {
+        super(BOTNAME, newSearch());
+    }
+
+    private static MctsSearch newSearch() {
+        MctsSearch search = new MctsSearch(new Random());
+        search.getTree().setNodeBudget(NODE_BUDGET);
+        return search;
+    }
+}
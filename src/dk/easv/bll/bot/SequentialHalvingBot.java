@@ -0,0 +1,19 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.bot.mcts.SearchBot;
+import dk.easv.bll.bot.mcts.SequentialHalving;
+
+import java.util.Random;
+
+/**
+ * ExampleSneakyBot done properly: plays random games for every move, keeps all the results and picks the best.
+ * The random games are spread with Sequential Halving, so the moves that are clearly bad stop getting any.
+ */
+@BotConcurrency(BotConcurrency.Model.PER_THREAD)
+public class SequentialHalvingBot extends SearchBot {
+    private static final String BOTNAME = "Sequential Halving MC";
+
+    public SequentialHalvingBot() {
+        super(BOTNAME, new SequentialHalving(new Random()));
+    }
+}
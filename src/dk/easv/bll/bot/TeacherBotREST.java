@@ -20,6 +20,7 @@ import java.net.http.HttpResponse.BodyHandlers;
  * This client implementation requires the Google GSon library.
  *
  */
+@BotConcurrency(BotConcurrency.Model.SHARED)
 public class TeacherBotREST implements IBot{
     private static final String BOT_NAME = "Teacher Bot (online)";
     // This bot requires a VPN connection to the EASV network
@@ -19,7 +19,7 @@ public class TestAi implements IBot {
 
     private IMove mcts(IGameState state, int maxTimeMs) {
         long time = System.currentTimeMillis();
-        Random rand = new Random();
+        Random rand = state.newRandom();
         int count = 0;
 
         // Create the root node
@@ -254,7 +254,7 @@ public class TestAi implements IBot {
         // Check if there are any available moves
         if (!availableMoves.isEmpty()) {
             // Generate a random index within the range of available moves
-            int randomIndex = new Random().nextInt(availableMoves.size());
+            int randomIndex = state.newRandom().nextInt(availableMoves.size());
 
             // Return the move at the randomly selected index
             return availableMoves.get(randomIndex);
@@ -0,0 +1,173 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.game.FastGame;
+
+import java.util.Random;
+
+/**
+ * Monte Carlo Graph Search: MCTS where transpositions share one node instead of splitting their statistics
+ * over several copies in a tree.
+ *
+ * Visit counts are kept on the edges, so exploration is still per parent, while the value of a move is read
+ * from the shared child node. After a playout the edges on the path get their visit, and the value of every
+ * node on the path is recomputed from its children, so a node also picks up what its children learned
+ * through other parents.
+ */
+public class GraphSearch implements MoveSearch {
+    private static final double FIRST_PLAY_URGENCY = 1.1;
+
+    private final Random rand;
+    private final MctsGraph graph = new MctsGraph(1 << 15);
+    private final FastGame game = new FastGame();
+    private final int[] moves = new int[FastGame.CELLS];
+    private final int[] pathNodes = new int[FastGame.CELLS + 1];
+    private final int[] pathEdges = new int[FastGame.CELLS + 1];
+
+    private double exploration = 0.4;
+    private int iterations;
+
+    public GraphSearch(Random rand) {
+        this.rand = rand;
+    }
+
+    /**
+     * Searches the position until the deadline.
+     * @param position The position to search, it is not changed.
+     * @param deadline Value of System.nanoTime() at which the search must stop.
+     * @return The cell index (x*9+y) of the most visited move, or NONE if the game is over.
+     */
+    @Override
+    public int search(FastGame position, long deadline) {
+        return search(position, deadline, 0);
+    }
+
+    /**
+     * Searches with a fixed number of playouts, which gives the same amount of work on any machine.
+     * @param position The position to search, it is not changed.
+     * @param budget The number of playouts.
+     * @return The cell index (x*9+y) of the most visited move, or NONE if the game is over.
+     */
+    @Override
+    public int search(FastGame position, int budget) {
+        return search(position, Long.MAX_VALUE, budget);
+    }
+
+    /**
+     * Restarts the randomness of the playouts, so the same seed gives the same search.
+     */
+    @Override
+    public void setSeed(long seed) {
+        rand.setSeed(seed);
+    }
+
+    // Stops at the deadline, or after the budget if it is not 0
+    private int search(FastGame position, long deadline, int budget) {
+        graph.clear();
+        int root = graph.add(position.hash());
+        iterations = 0;
+
+        do {
+            game.copyFrom(position);
+            int length = 0;
+            int node = root;
+            pathNodes[length++] = node;
+
+            while (game.getResult() == FastGame.ACTIVE) {
+                if (graph.firstEdge[node] == MctsGraph.NONE) {
+                    // A leaf is expanded the second time it is reached
+                    if (graph.visits[node] == 0 && node != root)
+                        break;
+                    graph.expand(node, moves, game.legalMoves(moves));
+                }
+                int edge = selectEdge(node);
+                game.play(graph.edgeMove[edge]);
+
+                boolean known = true;
+                if (graph.edgeChild[edge] == MctsGraph.NONE) {
+                    int child = graph.find(game.hash());
+                    if (child == MctsGraph.NONE) {
+                        child = graph.add(game.hash());
+                        known = false;
+                    }
+                    graph.edgeChild[edge] = child;
+                }
+                node = graph.edgeChild[edge];
+                pathEdges[length] = edge;
+                pathNodes[length++] = node;
+                if (!known)
+                    break;
+            }
+
+            // The leaf value is seen from the player who moved into it
+            int mover = 1 - game.getCurrentPlayer();
+            int result = game.playout(rand);
+            graph.leafVisits[node]++;
+            graph.leafWins[node] += result == mover ? 1f : result == FastGame.TIE ? 0.5f : 0f;
+            graph.visits[node]++;
+            graph.updateValue(node);
+
+            for (int i = length - 2; i >= 0; i--) {
+                graph.edgeVisits[pathEdges[i + 1]]++;
+                graph.visits[pathNodes[i]]++;
+                graph.updateValue(pathNodes[i]);
+            }
+            iterations++;
+        } while ((budget == 0 ? System.nanoTime() < deadline : iterations < budget)
+                && !Thread.currentThread().isInterrupted());
+
+        return bestMove(root);
+    }
+
+    private int selectEdge(int node) {
+        int first = graph.firstEdge[node];
+        int end = first + graph.edgeCount[node];
+        double logVisits = Math.log(graph.visits[node] + 1);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (int edge = first; edge < end; edge++) {
+            int child = graph.edgeChild[edge];
+            int n = graph.edgeVisits[edge];
+            double value;
+            if (child == MctsGraph.NONE || graph.visits[child] == 0)
+                value = FIRST_PLAY_URGENCY;
+            else
+                value = graph.value[child] + exploration * Math.sqrt(logVisits / (n + 1));
+            if (value > bestValue) {
+                bestValue = value;
+                best = edge;
+            }
+        }
+        return best;
+    }
+
+    private int bestMove(int root) {
+        if (graph.firstEdge[root] == MctsGraph.NONE)
+            return MctsGraph.NONE;
+        int first = graph.firstEdge[root];
+        int end = first + graph.edgeCount[root];
+        int best = first;
+        for (int edge = first + 1; edge < end; edge++)
+            if (graph.edgeVisits[edge] > graph.edgeVisits[best])
+                best = edge;
+        return graph.edgeMove[best];
+    }
+
+    /**
+     * @param exploration The UCT exploration constant.
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @return Number of playouts done by the last search.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public MctsGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,83 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.game.FastGame;
+
+/**
+ * Move prior built from the rules the simple bots use:
+ * take a micro board when possible (PrioListOnSteroids), block the opponent from taking one (InsaneBotNoAi),
+ * prefer center, then corners, then outer middles (LocalPrioritisedListBot).
+ * On top of that, moves sending the opponent to a finished micro board (a free move), or to a micro board the
+ * opponent can take right away, are punished.
+ * The scores are turned into probabilities with a softmax.
+ */
+public class HeuristicPrior implements MovePrior {
+    private static final float WIN_GAME = 20f;
+    private static final float WIN_MICRO = 3f;
+    private static final float BLOCK_MICRO = 1.5f;
+    private static final float GIVE_FREE_MOVE = -1.5f;
+    private static final float GIVE_MICRO = -1f;
+    // Bonus per local cell, center first, then corners, then outer middles
+    private static final float[] CELL_BONUS = {
+            0.3f, 0f, 0.3f,
+            0f, 0.5f, 0f,
+            0.3f, 0f, 0.3f};
+
+    @Override
+    public void score(FastGame game, int[] moves, int count, float[] priors) {
+        int player = game.getCurrentPlayer();
+        int opponent = 1 - player;
+        int decided = game.getDecidedMask();
+        float max = Float.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            int x = cell / 9;
+            int y = cell % 9;
+            int micro = (x / 3) * 3 + y / 3;
+            int local = (x % 3) * 3 + y % 3;
+            int bit = 1 << local;
+            float score = CELL_BONUS[local];
+
+            int decidedAfter = decided;
+            if (FastGame.isWinningMask(game.getMicroMask(micro, player) | bit)) {
+                score += WIN_MICRO;
+                decidedAfter |= 1 << micro;
+                if (FastGame.isWinningMask(game.getMacroMask(player) | (1 << micro)))
+                    score += WIN_GAME;
+            }
+            else if (FastGame.isWinningMask(game.getMicroMask(micro, opponent) | bit)) {
+                score += BLOCK_MICRO;
+            }
+
+            // Where the opponent has to play next
+            if ((decidedAfter & (1 << local)) != 0)
+                score += GIVE_FREE_MOVE;
+            else if (canTake(game, local, opponent, local == micro ? bit : 0))
+                score += GIVE_MICRO;
+
+            priors[i] = score;
+            max = Math.max(max, score);
+        }
+
+        float sum = 0;
+        for (int i = 0; i < count; i++) {
+            priors[i] = (float) Math.exp(priors[i] - max);
+            sum += priors[i];
+        }
+        for (int i = 0; i < count; i++)
+            priors[i] /= sum;
+    }
+
+    // Whether the player can win the micro board with one move, taken holds cells just played there
+    private static boolean canTake(FastGame game, int micro, int player, int taken) {
+        int own = game.getMicroMask(micro, player);
+        int free = ~(own | game.getMicroMask(micro, 1 - player) | taken) & 0x1FF;
+        while (free != 0) {
+            int bit = free & -free;
+            if (FastGame.isWinningMask(own | bit))
+                return true;
+            free &= free - 1;
+        }
+        return false;
+    }
+}
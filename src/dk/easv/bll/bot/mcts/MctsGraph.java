@@ -0,0 +1,195 @@
+package dk.easv.bll.bot.mcts;
+
+import java.util.Arrays;
+
+/**
+ * Node storage for Monte Carlo Graph Search. Every position is stored once, found through its hash,
+ * no matter how many move orders lead to it. Moves are edges with their own visit counts, so the
+ * same node can be the child of several parents.
+ *
+ * Like MctsTree everything is kept in parallel primitive arrays. Nodes and edges are indexes.
+ * The value of a node is seen from the player who played the move leading to it, which is the same player
+ * for every path, as the player to move follows from the number of pieces on the board.
+ */
+public class MctsGraph {
+    public static final int NONE = -1;
+
+    // Nodes
+    int nodeCount;
+    long[] key;
+    int[] firstEdge;
+    byte[] edgeCount;
+    int[] visits;
+    float[] value;      // mean value of the node, from its own playouts and the values of its children
+    int[] leafVisits;   // playouts started from this node
+    float[] leafWins;
+
+    // Edges
+    int edgeTotal;
+    byte[] edgeMove;
+    int[] edgeVisits;
+    int[] edgeChild;
+
+    // Open addressing hash table from position hash to node
+    private long[] tableKeys;
+    private int[] tableNodes;
+    private int tableMask;
+
+    public MctsGraph(int initialNodes) {
+        key = new long[initialNodes];
+        firstEdge = new int[initialNodes];
+        edgeCount = new byte[initialNodes];
+        visits = new int[initialNodes];
+        value = new float[initialNodes];
+        leafVisits = new int[initialNodes];
+        leafWins = new float[initialNodes];
+
+        int initialEdges = initialNodes * 8;
+        edgeMove = new byte[initialEdges];
+        edgeVisits = new int[initialEdges];
+        edgeChild = new int[initialEdges];
+
+        int tableSize = Integer.highestOneBit(initialNodes * 2 - 1) << 1;
+        tableKeys = new long[tableSize];
+        tableNodes = new int[tableSize];
+        tableMask = tableSize - 1;
+        Arrays.fill(tableNodes, NONE);
+    }
+
+    /**
+     * Forgets all nodes. The arrays are kept for the next search.
+     */
+    public void clear() {
+        nodeCount = 0;
+        edgeTotal = 0;
+        Arrays.fill(tableNodes, NONE);
+    }
+
+    /**
+     * @param hash The position hash.
+     * @return The node of the position, or NONE if it is not in the graph.
+     */
+    int find(long hash) {
+        int slot = slot(hash);
+        while (tableNodes[slot] != NONE) {
+            if (tableKeys[slot] == hash)
+                return tableNodes[slot];
+            slot = (slot + 1) & tableMask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds a node for a position that is not in the graph yet.
+     * @param hash The position hash.
+     * @return The new node.
+     */
+    int add(long hash) {
+        if ((nodeCount + 1) * 2 > tableKeys.length)
+            growTable();
+        ensureNodeCapacity(nodeCount + 1);
+        int node = nodeCount++;
+        key[node] = hash;
+        firstEdge[node] = NONE;
+        edgeCount[node] = 0;
+        visits[node] = 0;
+        value[node] = 0;
+        leafVisits[node] = 0;
+        leafWins[node] = 0;
+        insert(hash, node);
+        return node;
+    }
+
+    /**
+     * Gives the node an edge for every move, the children are looked up when an edge is first followed.
+     * @param node The node to expand.
+     * @param moves The moves (cell indexes).
+     * @param count The number of moves.
+     */
+    void expand(int node, int[] moves, int count) {
+        ensureEdgeCapacity(edgeTotal + count);
+        int first = edgeTotal;
+        for (int i = 0; i < count; i++) {
+            edgeMove[first + i] = (byte) moves[i];
+            edgeVisits[first + i] = 0;
+            edgeChild[first + i] = NONE;
+        }
+        firstEdge[node] = first;
+        edgeCount[node] = (byte) count;
+        edgeTotal += count;
+    }
+
+    /**
+     * Recomputes the value of a node as the visit weighted mean of its own playouts and the values of its children.
+     * Children can be updated through other parents, so this is what keeps transpositions consistent.
+     * @param node The node to update.
+     */
+    void updateValue(int node) {
+        double sum = leafWins[node];
+        int count = leafVisits[node];
+        int first = firstEdge[node];
+        if (first != NONE) {
+            int end = first + edgeCount[node];
+            for (int edge = first; edge < end; edge++) {
+                int n = edgeVisits[edge];
+                if (n > 0) {
+                    sum += n * (1.0 - value[edgeChild[edge]]);
+                    count += n;
+                }
+            }
+        }
+        value[node] = count == 0 ? 0 : (float) (sum / count);
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & tableMask;
+    }
+
+    private void insert(long hash, int node) {
+        int slot = slot(hash);
+        while (tableNodes[slot] != NONE)
+            slot = (slot + 1) & tableMask;
+        tableKeys[slot] = hash;
+        tableNodes[slot] = node;
+    }
+
+    private void growTable() {
+        int size = tableKeys.length * 2;
+        tableKeys = new long[size];
+        tableNodes = new int[size];
+        tableMask = size - 1;
+        Arrays.fill(tableNodes, NONE);
+        for (int node = 0; node < nodeCount; node++)
+            insert(key[node], node);
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity <= key.length)
+            return;
+        int newCapacity = Math.max(capacity, key.length * 2);
+        key = Arrays.copyOf(key, newCapacity);
+        firstEdge = Arrays.copyOf(firstEdge, newCapacity);
+        edgeCount = Arrays.copyOf(edgeCount, newCapacity);
+        visits = Arrays.copyOf(visits, newCapacity);
+        value = Arrays.copyOf(value, newCapacity);
+        leafVisits = Arrays.copyOf(leafVisits, newCapacity);
+        leafWins = Arrays.copyOf(leafWins, newCapacity);
+    }
+
+    private void ensureEdgeCapacity(int capacity) {
+        if (capacity <= edgeMove.length)
+            return;
+        int newCapacity = Math.max(capacity, edgeMove.length * 2);
+        edgeMove = Arrays.copyOf(edgeMove, newCapacity);
+        edgeVisits = Arrays.copyOf(edgeVisits, newCapacity);
+        edgeChild = Arrays.copyOf(edgeChild, newCapacity);
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int edgeCount() {
+        return edgeTotal;
+    }
+}
@@ -0,0 +1,304 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.game.FastGame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Monte Carlo Tree Search with UCT selection and optional RAVE (Rapid Action Value Estimation).
+ *
+ * With RAVE every playout also updates the All-Moves-As-First statistics of all siblings whose move was
+ * played later in the same playout by the same player. Those statistics are available long before a child
+ * has many visits of its own, and are blended into the UCT value with the schedule
+ * beta = sqrt(k / (3 * visits + k)), so they dominate early and fade out as real visits come in.
+ * Setting the equivalence parameter k to 0 gives plain UCT.
+ *
+ * When a MovePrior is set, selection uses the PUCT formula of AlphaZero instead of UCT, so moves the prior
+ * likes are tried first and explored more. The prior also drives progressive widening: children are sorted by
+ * prior, and only the best base * visits^exponent of them can be selected. That keeps the search from spreading
+ * itself over all 81 moves of a free move position, so it gets much deeper in the same time.
+ */
+public class MctsSearch implements MoveSearch {
+    private static final double FIRST_PLAY_URGENCY = 1.1;
+
+    private final Random rand;
+    private final NodeStore tree;
+    private final FastGame game = new FastGame();
+    private final int[] moves = new int[FastGame.CELLS];
+    private final int[] path = new int[FastGame.CELLS + 1];
+    private final byte[] playedBy = new byte[FastGame.CELLS];
+    private final float[] priors = new float[FastGame.CELLS];
+
+    private double exploration = 0.4;
+    private int raveEquivalence = 300;
+    private MovePrior prior;
+    private double cPuct = 1.5;
+    private double wideningBase = 0;
+    private double wideningExponent = 0.5;
+    private int iterations;
+
+    public MctsSearch(Random rand) {
+        this(rand, new MctsTree(1 << 16));
+    }
+
+    /**
+     * @param rand Source of randomness for the playouts.
+     * @param tree Where to keep the nodes, for example an OffHeapTree for very long searches.
+     */
+    public MctsSearch(Random rand, NodeStore tree) {
+        this.rand = rand;
+        this.tree = tree;
+    }
+
+    /**
+     * Searches the position until the deadline.
+     * @param position The position to search, it is not changed.
+     * @param deadline Value of System.nanoTime() at which the search must stop.
+     * @return The cell index (x*9+y) of the most visited move, or NONE if the game is over.
+     */
+    @Override
+    public int search(FastGame position, long deadline) {
+        return search(position, deadline, 0);
+    }
+
+    /**
+     * Searches with a fixed number of playouts, which gives the same amount of work on any machine.
+     * @param position The position to search, it is not changed.
+     * @param budget The number of playouts.
+     * @return The cell index (x*9+y) of the most visited move, or NONE if the game is over.
+     */
+    @Override
+    public int search(FastGame position, int budget) {
+        return search(position, Long.MAX_VALUE, budget);
+    }
+
+    /**
+     * Restarts the randomness of the playouts, so the same seed gives the same search.
+     */
+    @Override
+    public void setSeed(long seed) {
+        rand.setSeed(seed);
+    }
+
+    // Stops at the deadline, or after the budget if it is not 0, and releases the tree when done
+    private int search(FastGame position, long deadline, int budget) {
+        try {
+            return grow(position, deadline, budget);
+        }
+        finally {
+            tree.release();
+        }
+    }
+
+    private int grow(FastGame position, long deadline, int budget) {
+        tree.clear();
+        int root = tree.addRoot();
+        int rootPlayer = position.getCurrentPlayer();
+        iterations = 0;
+
+        do {
+            // Room for one expansion, recycling only moves nodes between iterations
+            if (!tree.hasRoom(FastGame.CELLS))
+                tree.recycle();
+            game.copyFrom(position);
+            int pathLength = 0;
+            int node = root;
+            path[pathLength++] = node;
+
+            // Selection
+            while (tree.firstChild(node) != NodeStore.NONE && game.getResult() == FastGame.ACTIVE) {
+                node = selectChild(node);
+                game.play(tree.move(node));
+                path[pathLength++] = node;
+            }
+
+            // Expansion, a leaf gets its children the second time it is reached
+            if (game.getResult() == FastGame.ACTIVE && (tree.visits(node) > 0 || node == root)) {
+                expand(node);
+                node = selectChild(node);
+                game.play(tree.move(node));
+                path[pathLength++] = node;
+            }
+
+            // Simulation, remembering who played which cell for the AMAF statistics
+            Arrays.fill(playedBy, (byte) 0);
+            while (game.getResult() == FastGame.ACTIVE) {
+                int count = game.legalMoves(moves);
+                int cell = moves[rand.nextInt(count)];
+                playedBy[cell] = (byte) (game.getCurrentPlayer() + 1);
+                game.play(cell);
+            }
+
+            backup(path, pathLength, rootPlayer, game.getResult());
+            iterations++;
+        } while ((budget == 0 ? System.nanoTime() < deadline : iterations < budget)
+                && !Thread.currentThread().isInterrupted());
+
+        return bestMove(root);
+    }
+
+    private void expand(int node) {
+        int count = game.legalMoves(moves);
+        if (prior == null) {
+            tree.expand(node, moves, null, count);
+            return;
+        }
+        prior.score(game, moves, count, priors);
+        // Insertion sort on the prior, best first, so widening can just take the first children
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            float p = priors[i];
+            int k = i - 1;
+            while (k >= 0 && priors[k] < p) {
+                moves[k + 1] = moves[k];
+                priors[k + 1] = priors[k];
+                k--;
+            }
+            moves[k + 1] = move;
+            priors[k + 1] = p;
+        }
+        tree.expand(node, moves, priors, count);
+    }
+
+    private void backup(int[] path, int pathLength, int rootPlayer, int result) {
+        for (int i = pathLength - 1; i >= 0; i--) {
+            int node = path[i];
+            int toMove = rootPlayer ^ (i & 1);
+            tree.addResult(node, reward(1 - toMove, result));
+
+            if (raveEquivalence > 0 && tree.firstChild(node) != NodeStore.NONE) {
+                byte mark = (byte) (toMove + 1);
+                float r = reward(toMove, result);
+                int first = tree.firstChild(node);
+                int end = first + tree.childCount(node);
+                for (int child = first; child < end; child++)
+                    if (playedBy[tree.move(child)] == mark)
+                        tree.addAmafResult(child, r);
+            }
+
+            // The move into this node happened after the position of its parent
+            if (i > 0)
+                playedBy[tree.move(node)] = (byte) (2 - toMove);
+        }
+    }
+
+    private static float reward(int player, int result) {
+        if (result == player)
+            return 1f;
+        return result == FastGame.TIE ? 0.5f : 0f;
+    }
+
+    private int selectChild(int node) {
+        int first = tree.firstChild(node);
+        int end = first + widenedCount(node);
+        double logVisits = Math.log(tree.visits(node) + 1);
+        double sqrtVisits = Math.sqrt(tree.visits(node) + 1);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (int child = first; child < end; child++) {
+            int n = tree.visits(child);
+            int amafN = tree.amafVisits(child);
+            double value;
+            if (prior != null) {
+                value = blendedValue(child, n, amafN, 0.5)
+                        + cPuct * tree.prior(child) * sqrtVisits / (n + 1);
+            }
+            else if (n == 0 && amafN == 0) {
+                value = FIRST_PLAY_URGENCY;
+            }
+            else {
+                value = blendedValue(child, n, amafN, 0)
+                        + exploration * Math.sqrt(logVisits / (n + 1));
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Mean value of the child, mixed with its AMAF value following the RAVE schedule
+    private double blendedValue(int child, int n, int amafN, double unknown) {
+        if (n == 0 && amafN == 0)
+            return unknown;
+        double q = n > 0 ? tree.wins(child) / n : 0;
+        double beta = 0;
+        if (raveEquivalence > 0 && amafN > 0)
+            beta = n == 0 ? 1 : Math.sqrt(raveEquivalence / (3.0 * n + raveEquivalence));
+        double amafQ = amafN > 0 ? tree.amafWins(child) / amafN : 0;
+        return (1 - beta) * q + beta * amafQ;
+    }
+
+    private int widenedCount(int node) {
+        int count = tree.childCount(node);
+        if (prior == null || wideningBase <= 0)
+            return count;
+        int allowed = (int) (wideningBase * Math.pow(tree.visits(node) + 1, wideningExponent));
+        return Math.max(1, Math.min(count, allowed));
+    }
+
+    private int bestMove(int root) {
+        if (tree.firstChild(root) == NodeStore.NONE)
+            return NodeStore.NONE;
+        int first = tree.firstChild(root);
+        int end = first + tree.childCount(root);
+        int best = first;
+        for (int child = first + 1; child < end; child++)
+            if (tree.visits(child) > tree.visits(best))
+                best = child;
+        return tree.move(best);
+    }
+
+    /**
+     * @param exploration The UCT exploration constant.
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @param raveEquivalence Number of visits at which real and AMAF statistics weigh about the same,
+     * 0 disables RAVE.
+     */
+    public void setRaveEquivalence(int raveEquivalence) {
+        this.raveEquivalence = raveEquivalence;
+    }
+
+    /**
+     * @param prior Prior used for PUCT selection and progressive widening, null for plain UCT.
+     */
+    public void setPrior(MovePrior prior) {
+        this.prior = prior;
+    }
+
+    /**
+     * @param cPuct The PUCT exploration constant, only used with a prior.
+     */
+    public void setCPuct(double cPuct) {
+        this.cPuct = cPuct;
+    }
+
+    /**
+     * Only the best base * visits^exponent children, ordered by prior, can be selected.
+     * @param base Children allowed at the first visit, 0 disables widening.
+     * @param exponent How fast more children are allowed.
+     */
+    public void setWidening(double base, double exponent) {
+        this.wideningBase = base;
+        this.wideningExponent = exponent;
+    }
+
+    /**
+     * @return Number of playouts done by the last search.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    public NodeStore getTree() {
+        return tree;
+    }
+}
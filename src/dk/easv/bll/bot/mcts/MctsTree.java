@@ -0,0 +1,189 @@
+package dk.easv.bll.bot.mcts;
+
+import java.util.Arrays;
+
+/**
+ * Node storage kept as parallel primitive arrays on the heap instead of Node objects.
+ * The arrays grow by doubling, but never past the node budget.
+ */
+public class MctsTree extends NodeStore {
+    /**
+     * Bytes used per node by the arrays, including the array used while recycling.
+     */
+    public static final int BYTES_PER_NODE = 34;
+
+    private int[] parent;
+    private int[] firstChild;
+    private byte[] childCount;
+    private byte[] move;
+    private int[] visits;
+    private float[] wins;
+    private int[] amafVisits;
+    private float[] amafWins;
+    private float[] prior;
+    private int[] forward;
+
+    public MctsTree(int initialCapacity) {
+        parent = new int[initialCapacity];
+        firstChild = new int[initialCapacity];
+        childCount = new byte[initialCapacity];
+        move = new byte[initialCapacity];
+        visits = new int[initialCapacity];
+        wins = new float[initialCapacity];
+        amafVisits = new int[initialCapacity];
+        amafWins = new float[initialCapacity];
+        prior = new float[initialCapacity];
+        forward = new int[initialCapacity];
+    }
+
+    @Override
+    int parent(int node) {
+        return parent[node];
+    }
+
+    @Override
+    void setParent(int node, int parent) {
+        this.parent[node] = parent;
+    }
+
+    @Override
+    int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    @Override
+    void setFirstChild(int node, int firstChild) {
+        this.firstChild[node] = firstChild;
+    }
+
+    @Override
+    int childCount(int node) {
+        return childCount[node];
+    }
+
+    @Override
+    void setChildCount(int node, int count) {
+        childCount[node] = (byte) count;
+    }
+
+    @Override
+    int move(int node) {
+        return move[node];
+    }
+
+    @Override
+    int visits(int node) {
+        return visits[node];
+    }
+
+    @Override
+    float wins(int node) {
+        return wins[node];
+    }
+
+    @Override
+    int amafVisits(int node) {
+        return amafVisits[node];
+    }
+
+    @Override
+    float amafWins(int node) {
+        return amafWins[node];
+    }
+
+    @Override
+    float prior(int node) {
+        return prior[node];
+    }
+
+    @Override
+    void addResult(int node, float reward) {
+        visits[node]++;
+        wins[node] += reward;
+    }
+
+    @Override
+    void addAmafResult(int node, float reward) {
+        amafVisits[node]++;
+        amafWins[node] += reward;
+    }
+
+    @Override
+    void init(int node, int parentNode, int cell, float movePrior) {
+        parent[node] = parentNode;
+        firstChild[node] = NONE;
+        childCount[node] = 0;
+        move[node] = (byte) cell;
+        visits[node] = 0;
+        wins[node] = 0;
+        amafVisits[node] = 0;
+        amafWins[node] = 0;
+        prior[node] = movePrior;
+    }
+
+    @Override
+    void copy(int from, int to) {
+        parent[to] = parent[from];
+        firstChild[to] = firstChild[from];
+        childCount[to] = childCount[from];
+        move[to] = move[from];
+        visits[to] = visits[from];
+        wins[to] = wins[from];
+        amafVisits[to] = amafVisits[from];
+        amafWins[to] = amafWins[from];
+        prior[to] = prior[from];
+    }
+
+    @Override
+    int forward(int node) {
+        return forward[node];
+    }
+
+    @Override
+    void setForward(int node, int index) {
+        forward[node] = index;
+    }
+
+    @Override
+    void fillForward(int from, int to, int index) {
+        Arrays.fill(forward, from, to, index);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity <= parent.length)
+            return;
+        resize(Math.min(Math.max(capacity, parent.length * 2), maxNodes));
+    }
+
+    private void resize(int capacity) {
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        move = Arrays.copyOf(move, capacity);
+        visits = Arrays.copyOf(visits, capacity);
+        wins = Arrays.copyOf(wins, capacity);
+        amafVisits = Arrays.copyOf(amafVisits, capacity);
+        amafWins = Arrays.copyOf(amafWins, capacity);
+        prior = Arrays.copyOf(prior, capacity);
+        forward = Arrays.copyOf(forward, capacity);
+    }
+
+    /**
+     * Sets a hard limit on the number of nodes. Lowering it below the current capacity clears the tree.
+     * @param maxNodes The most nodes the tree may hold, at least 1024.
+     */
+    @Override
+    public void setNodeBudget(int maxNodes) {
+        super.setNodeBudget(maxNodes);
+        if (parent.length > maxNodes) {
+            size = 0;
+            resize(maxNodes);
+        }
+    }
+
+    @Override
+    public int bytesPerNode() {
+        return BYTES_PER_NODE;
+    }
+}
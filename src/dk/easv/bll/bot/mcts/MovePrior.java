@@ -0,0 +1,18 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.game.FastGame;
+
+/**
+ * Cheap domain knowledge used by the search to decide which moves to look at first.
+ */
+public interface MovePrior {
+
+    /**
+     * Gives every legal move a prior probability of being the best move.
+     * @param game The position, it must not be changed.
+     * @param moves The legal moves (cell indexes).
+     * @param count The number of moves.
+     * @param priors Output, the prior of moves[i] goes to priors[i]. They should sum to 1.
+     */
+    void score(FastGame game, int[] moves, int count, float[] priors);
+}
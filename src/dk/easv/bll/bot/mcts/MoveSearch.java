@@ -0,0 +1,28 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.game.FastGame;
+
+/**
+ * A search that picks a move for a position, either until a deadline or with a fixed number of playouts.
+ */
+public interface MoveSearch {
+
+    /**
+     * @param position The position to search, it is not changed.
+     * @param deadline Value of System.nanoTime() at which the search must stop.
+     * @return The cell index (x*9+y) of the best move, or -1 if the game is over.
+     */
+    int search(FastGame position, long deadline);
+
+    /**
+     * @param position The position to search, it is not changed.
+     * @param budget The number of playouts.
+     * @return The cell index (x*9+y) of the best move, or -1 if the game is over.
+     */
+    int search(FastGame position, int budget);
+
+    /**
+     * Restarts the randomness of the playouts, so the same seed gives the same search.
+     */
+    void setSeed(long seed);
+}
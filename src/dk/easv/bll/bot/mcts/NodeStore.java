@@ -0,0 +1,216 @@
+package dk.easv.bll.bot.mcts;
+
+/**
+ * Node storage for the Monte Carlo search. A node is just an index, and the children of a node are allocated
+ * as one contiguous block, so a node only needs to know its first child and the number of children.
+ * Children are always stored after their parent.
+ *
+ * The statistics of a node are seen from the player who played the move leading to that node.
+ *
+ * The store can be given a hard node budget. When the search runs out of room it calls recycle(),
+ * which throws away the children of the least visited nodes and slides the remaining nodes together.
+ * Long searches then use a fixed amount of memory instead of running into the garbage collector
+ * or an OutOfMemoryError.
+ *
+ * Subclasses decide where the node fields live, MctsTree keeps them in arrays on the heap
+ * and OffHeapTree keeps them outside of it.
+ */
+public abstract class NodeStore {
+    public static final int NONE = -1;
+    protected static final int MIN_BUDGET = 1024;
+
+    protected int size;
+    protected int maxNodes = Integer.MAX_VALUE;
+    private int recycles;
+
+    // Node fields
+
+    abstract int parent(int node);
+    abstract void setParent(int node, int parent);
+    abstract int firstChild(int node);
+    abstract void setFirstChild(int node, int firstChild);
+    abstract int childCount(int node);
+    abstract void setChildCount(int node, int count);
+    abstract int move(int node);
+    abstract int visits(int node);
+    abstract float wins(int node);
+    // All-Moves-As-First statistics, updated whenever the move of the node is played later in a playout
+    abstract int amafVisits(int node);
+    abstract float amafWins(int node);
+    // Probability given to the move by a MovePrior, children are sorted by it when one is used
+    abstract float prior(int node);
+
+    /**
+     * Adds a visit with the given reward to the node.
+     */
+    abstract void addResult(int node, float reward);
+
+    /**
+     * Adds an All-Moves-As-First visit with the given reward to the node.
+     */
+    abstract void addAmafResult(int node, float reward);
+
+    /**
+     * Sets up a new node without statistics or children.
+     */
+    abstract void init(int node, int parent, int move, float prior);
+
+    /**
+     * Copies every field of a node to another index, used when nodes slide together.
+     */
+    abstract void copy(int from, int to);
+
+    // New index of a node while recycling, NONE for nodes thrown away
+    abstract int forward(int node);
+    abstract void setForward(int node, int index);
+    abstract void fillForward(int from, int to, int index);
+
+    /**
+     * Makes room for the given number of nodes, never more than the budget.
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Forgets all nodes in one go. The memory is kept for the next search.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Called when a search is over and its nodes are no longer needed. Stores holding a lot of memory
+     * give it back here, MctsTree keeps its arrays for the next search.
+     */
+    public void release() {
+        size = 0;
+    }
+
+    /**
+     * Adds a root node to an empty store.
+     * @return The index of the root.
+     */
+    int addRoot() {
+        ensureCapacity(size + 1);
+        init(size, NONE, NONE, 0);
+        return size++;
+    }
+
+    /**
+     * Allocates a child for every move given, as one block.
+     * @param node The node to expand.
+     * @param moves The moves (cell indexes) of the children.
+     * @param priors The prior of each move, or null.
+     * @param count The number of moves.
+     * @return The index of the first child.
+     */
+    int expand(int node, int[] moves, float[] priors, int count) {
+        ensureCapacity(size + count);
+        int first = size;
+        for (int i = 0; i < count; i++)
+            init(first + i, node, moves[i], priors == null ? 0 : priors[i]);
+        setFirstChild(node, first);
+        setChildCount(node, count);
+        size += count;
+        return first;
+    }
+
+    /**
+     * @param count Number of nodes that are about to be added.
+     * @return Returns true if the nodes fit in the budget.
+     */
+    boolean hasRoom(int count) {
+        return size + count <= maxNodes;
+    }
+
+    /**
+     * Frees at least half of the budget by throwing away the children of the least visited nodes.
+     * A node that loses its children keeps its own statistics, and gets new children the next time it is expanded.
+     * The children of the root are always kept. Node indexes change, except the index of the root.
+     */
+    void recycle() {
+        int target = Math.min(size, maxNodes) / 2;
+        int threshold = 2;
+        int live;
+        while ((live = mark(threshold)) > target)
+            threshold *= 2;
+
+        int next = 0;
+        for (int node = 0; node < size; node++)
+            if (forward(node) != NONE)
+                setForward(node, next++);
+
+        // Children are always stored after their parent, so nodes only move down and are read before overwritten
+        for (int node = 0; node < size; node++) {
+            int to = forward(node);
+            if (to == NONE)
+                continue;
+            boolean keep = keepsChildren(node, threshold);
+            int parent = parent(node);
+            int firstChild = keep ? forward(firstChild(node)) : NONE;
+            int childCount = keep ? childCount(node) : 0;
+            copy(node, to);
+            setParent(to, parent == NONE ? NONE : forward(parent));
+            setFirstChild(to, firstChild);
+            setChildCount(to, childCount);
+        }
+        size = live;
+        recycles++;
+    }
+
+    // Marks the nodes that survive the threshold with 0 and the rest with NONE, returns the number surviving
+    private int mark(int threshold) {
+        fillForward(0, size, NONE);
+        setForward(0, 0);
+        int live = 1;
+        for (int node = 0; node < size; node++) {
+            if (forward(node) == NONE || !keepsChildren(node, threshold))
+                continue;
+            int first = firstChild(node);
+            fillForward(first, first + childCount(node), 0);
+            live += childCount(node);
+        }
+        return live;
+    }
+
+    private boolean keepsChildren(int node, int threshold) {
+        return firstChild(node) != NONE && (node == 0 || visits(node) >= threshold);
+    }
+
+    /**
+     * Sets a hard limit on the number of nodes.
+     * @param maxNodes The most nodes the store may hold, at least 1024.
+     */
+    public void setNodeBudget(int maxNodes) {
+        if (maxNodes < MIN_BUDGET)
+            throw new IllegalArgumentException("Node budget must be at least " + MIN_BUDGET + ", was " + maxNodes);
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Sets a hard limit on the memory used by the nodes.
+     * @param bytes The most bytes the nodes may use.
+     */
+    public void setByteBudget(long bytes) {
+        setNodeBudget((int) Math.min(Integer.MAX_VALUE, bytes / bytesPerNode()));
+    }
+
+    /**
+     * @return Bytes used per node, including what is used while recycling.
+     */
+    public abstract int bytesPerNode();
+
+    public int getNodeBudget() {
+        return maxNodes;
+    }
+
+    /**
+     * @return Number of times nodes were recycled since the store was created.
+     */
+    public int getRecycles() {
+        return recycles;
+    }
+
+    public int size() {
+        return size;
+    }
+}
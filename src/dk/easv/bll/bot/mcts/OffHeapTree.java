@@ -0,0 +1,268 @@
+package dk.easv.bll.bot.mcts;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Node storage outside of the Java heap, in one direct buffer of fixed size records.
+ * The garbage collector never has to look at the nodes, so its pauses do not grow with the tree,
+ * which matters once a long thinking time builds a tree of tens of millions of nodes.
+ *
+ * The memory for the whole budget is one buffer, taken by reserve() or when a search adds its root, and given back
+ * in one go by release() when the search ends. Java only frees direct buffers when the garbage collector finds them,
+ * so given back buffers go to a pool shared by all trees of the same size instead, and the next search does not wait
+ * for a new buffer. The pool keeps as many buffers as searches ran at the same time, until releaseAll() drops them
+ * at the end of a simulation or tournament.
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ *
+ * Record layout, in bytes:
+ * 0 parent, 4 first child, 8 visits, 12 wins, 16 AMAF visits, 20 AMAF wins, 24 prior,
+ * 28 forward (used while recycling), 32 move, 33 child count, 34-35 padding.
+ */
+public class OffHeapTree extends NodeStore {
+    public static final int BYTES_PER_NODE = 36;
+
+    private static final int PARENT = 0;
+    private static final int FIRST_CHILD = 4;
+    private static final int VISITS = 8;
+    private static final int WINS = 12;
+    private static final int AMAF_VISITS = 16;
+    private static final int AMAF_WINS = 20;
+    private static final int PRIOR = 24;
+    private static final int FORWARD = 28;
+    private static final int MOVE = 32;
+    private static final int CHILD_COUNT = 33;
+
+    // Buffers not used by any search, by their capacity in nodes, guarded by itself
+    private static final Map<Integer, Deque<ByteBuffer>> POOL = new HashMap<>();
+
+    private final int capacity;
+    // Null while no search is running
+    private ByteBuffer nodes;
+
+    /**
+     * @param maxNodes The most nodes the tree can hold, memory for all of them is reserved when a search starts.
+     */
+    public OffHeapTree(int maxNodes) {
+        if (maxNodes < MIN_BUDGET || maxNodes > Integer.MAX_VALUE / BYTES_PER_NODE)
+            throw new IllegalArgumentException("Node budget must be between " + MIN_BUDGET + " and "
+                    + Integer.MAX_VALUE / BYTES_PER_NODE + ", was " + maxNodes);
+        capacity = maxNodes;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * @param bytes The most bytes the tree can use, all of it is reserved when a search starts.
+     * @return A tree holding as many nodes as fit.
+     */
+    public static OffHeapTree ofBytes(long bytes) {
+        return new OffHeapTree((int) Math.min(Integer.MAX_VALUE / BYTES_PER_NODE, bytes / BYTES_PER_NODE));
+    }
+
+    /**
+     * @return The most direct memory the JVM allows, set by -XX:MaxDirectMemorySize or else the maximum heap size.
+     */
+    public static long maxDirectMemory() {
+        String prefix = "-XX:MaxDirectMemorySize=";
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!argument.startsWith(prefix))
+                continue;
+            String value = argument.substring(prefix.length()).toLowerCase(Locale.ROOT);
+            int shift = "kmgt".indexOf(value.charAt(value.length() - 1)) * 10 + 10;
+            if (shift > 0)
+                value = value.substring(0, value.length() - 1);
+            return Long.parseLong(value) << shift;
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Drops the buffers no search is using, so the garbage collector can free them.
+     * Trees searching right now keep theirs, and the next search of a tree allocates a new buffer.
+     */
+    public static void releaseAll() {
+        synchronized (POOL) {
+            POOL.clear();
+        }
+    }
+
+    private static int at(int node, int field) {
+        return node * BYTES_PER_NODE + field;
+    }
+
+    @Override
+    int parent(int node) {
+        return nodes.getInt(at(node, PARENT));
+    }
+
+    @Override
+    void setParent(int node, int parent) {
+        nodes.putInt(at(node, PARENT), parent);
+    }
+
+    @Override
+    int firstChild(int node) {
+        return nodes.getInt(at(node, FIRST_CHILD));
+    }
+
+    @Override
+    void setFirstChild(int node, int firstChild) {
+        nodes.putInt(at(node, FIRST_CHILD), firstChild);
+    }
+
+    @Override
+    int childCount(int node) {
+        return nodes.get(at(node, CHILD_COUNT));
+    }
+
+    @Override
+    void setChildCount(int node, int count) {
+        nodes.put(at(node, CHILD_COUNT), (byte) count);
+    }
+
+    @Override
+    int move(int node) {
+        return nodes.get(at(node, MOVE));
+    }
+
+    @Override
+    int visits(int node) {
+        return nodes.getInt(at(node, VISITS));
+    }
+
+    @Override
+    float wins(int node) {
+        return nodes.getFloat(at(node, WINS));
+    }
+
+    @Override
+    int amafVisits(int node) {
+        return nodes.getInt(at(node, AMAF_VISITS));
+    }
+
+    @Override
+    float amafWins(int node) {
+        return nodes.getFloat(at(node, AMAF_WINS));
+    }
+
+    @Override
+    float prior(int node) {
+        return nodes.getFloat(at(node, PRIOR));
+    }
+
+    @Override
+    void addResult(int node, float reward) {
+        int base = node * BYTES_PER_NODE;
+        nodes.putInt(base + VISITS, nodes.getInt(base + VISITS) + 1);
+        nodes.putFloat(base + WINS, nodes.getFloat(base + WINS) + reward);
+    }
+
+    @Override
+    void addAmafResult(int node, float reward) {
+        int base = node * BYTES_PER_NODE;
+        nodes.putInt(base + AMAF_VISITS, nodes.getInt(base + AMAF_VISITS) + 1);
+        nodes.putFloat(base + AMAF_WINS, nodes.getFloat(base + AMAF_WINS) + reward);
+    }
+
+    @Override
+    void init(int node, int parent, int move, float prior) {
+        int base = node * BYTES_PER_NODE;
+        nodes.putInt(base + PARENT, parent);
+        nodes.putInt(base + FIRST_CHILD, NONE);
+        nodes.putInt(base + VISITS, 0);
+        nodes.putFloat(base + WINS, 0);
+        nodes.putInt(base + AMAF_VISITS, 0);
+        nodes.putFloat(base + AMAF_WINS, 0);
+        nodes.putFloat(base + PRIOR, prior);
+        nodes.put(base + MOVE, (byte) move);
+        nodes.put(base + CHILD_COUNT, (byte) 0);
+    }
+
+    @Override
+    void copy(int from, int to) {
+        int source = from * BYTES_PER_NODE;
+        int target = to * BYTES_PER_NODE;
+        // The forward field stays, it still belongs to the node that used to live here
+        for (int offset = 0; offset < BYTES_PER_NODE; offset += 4)
+            if (offset != FORWARD)
+                nodes.putInt(target + offset, nodes.getInt(source + offset));
+    }
+
+    @Override
+    int forward(int node) {
+        return nodes.getInt(at(node, FORWARD));
+    }
+
+    @Override
+    void setForward(int node, int index) {
+        nodes.putInt(at(node, FORWARD), index);
+    }
+
+    @Override
+    void fillForward(int from, int to, int index) {
+        for (int node = from; node < to; node++)
+            nodes.putInt(at(node, FORWARD), index);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (capacity > this.capacity)
+            throw new IllegalStateException("Off heap tree is full, " + this.capacity + " nodes");
+        if (nodes == null)
+            nodes = take(this.capacity);
+    }
+
+    /**
+     * Takes the buffer now instead of when the next search starts, so the first move of a game does not spend its
+     * time allocating and zeroing hundreds of MB.
+     */
+    public void reserve() {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Frees all nodes and gives the buffer back to the pool, for the next search of any tree of this size.
+     */
+    @Override
+    public void release() {
+        super.release();
+        if (nodes == null)
+            return;
+        synchronized (POOL) {
+            POOL.computeIfAbsent(capacity, k -> new ArrayDeque<>()).push(nodes);
+        }
+        nodes = null;
+    }
+
+    private static ByteBuffer take(int capacity) {
+        synchronized (POOL) {
+            Deque<ByteBuffer> free = POOL.get(capacity);
+            if (free != null && !free.isEmpty())
+                return free.pop();
+        }
+        return ByteBuffer.allocateDirect(capacity * BYTES_PER_NODE).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Sets a lower limit than the reserved capacity, this clears the tree.
+     * @param maxNodes The most nodes the tree may hold, at least 1024 and at most the reserved capacity.
+     */
+    @Override
+    public void setNodeBudget(int maxNodes) {
+        if (maxNodes > capacity)
+            throw new IllegalArgumentException("Node budget " + maxNodes + " is larger than the reserved " + capacity);
+        super.setNodeBudget(maxNodes);
+        size = 0;
+    }
+
+    @Override
+    public int bytesPerNode() {
+        return BYTES_PER_NODE;
+    }
+}
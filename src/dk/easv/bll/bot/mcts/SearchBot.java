@@ -0,0 +1,56 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.FastGame;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+
+/**
+ * Base of the bots that search with a MoveSearch. It loads the position, seeds the search when the game is
+ * seeded, and searches for the playout budget of the game or else for what is left of the time per move.
+ *
+ * A little of the time is left for the game manager to take the move, 50 ms or a tenth of the time when the time
+ * per move is short. The search stops on the wall clock, so with a CPU time budget it stops no later than the
+ * budget allows, a bit earlier when the machine is busy.
+ */
+public abstract class SearchBot implements IBot {
+    private static final long SAFETY_MARGIN_NANOS = 50_000_000L;
+
+    private final String name;
+    private final MoveSearch search;
+    private final FastGame position = new FastGame();
+
+    /**
+     * @param name The name of the bot.
+     * @param search The search, only used by this bot.
+     */
+    protected SearchBot(String name, MoveSearch search) {
+        this.name = name;
+        this.search = search;
+    }
+
+    @Override
+    public IMove doMove(IGameState state) {
+        position.load(state);
+        if (state.getSeed() != 0)
+            search.setSeed(state.getMoveSeed());
+        if (state.getPlayoutBudget() > 0)
+            return FastGame.toMove(search.search(position, state.getPlayoutBudget()));
+        return FastGame.toMove(search.search(position, deadline(state)));
+    }
+
+    /**
+     * @return The System.nanoTime() at which a search for the move of the state must stop.
+     */
+    public static long deadline(IGameState state) {
+        // States from outside this project may not keep a move clock, the time per move is the most there is
+        long remaining = Math.min(state.getRemainingTimeNanos(), state.getTimePerMove() * 1_000_000L);
+        long thinking = remaining - Math.min(SAFETY_MARGIN_NANOS, remaining / 10);
+        return System.nanoTime() + Math.max(0, thinking);
+    }
+
+    @Override
+    public String getBotName() {
+        return name;
+    }
+}
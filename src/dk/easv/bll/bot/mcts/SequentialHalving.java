@@ -0,0 +1,143 @@
+package dk.easv.bll.bot.mcts;
+
+import dk.easv.bll.game.FastGame;
+
+import java.util.Random;
+
+/**
+ * Flat Monte Carlo search that spreads its playouts over the root moves with Sequential Halving.
+ * The budget is split into log2(moves) rounds. In every round the remaining moves share the round budget evenly,
+ * and afterwards the worse half of them is dropped. Almost all playouts end up on the few moves that are
+ * actually in question, instead of being spread evenly or stopping at the first random win.
+ */
+public class SequentialHalving implements MoveSearch {
+    private final Random rand;
+    private final FastGame game = new FastGame();
+    private final int[] moves = new int[FastGame.CELLS];
+    private final int[] candidates = new int[FastGame.CELLS];
+    private final int[] visits = new int[FastGame.CELLS];
+    private final float[] wins = new float[FastGame.CELLS];
+    private int playouts;
+
+    public SequentialHalving(Random rand) {
+        this.rand = rand;
+    }
+
+    /**
+     * Searches until the deadline, every round gets an equal share of the remaining time.
+     * @param position The position to search, it is not changed.
+     * @param deadline Value of System.nanoTime() at which the search must stop.
+     * @return The cell index (x*9+y) of the best move, or -1 if the game is over.
+     */
+    @Override
+    public int search(FastGame position, long deadline) {
+        int count = start(position);
+        if (count <= 1)
+            return count == 1 ? moves[0] : -1;
+
+        int rounds = rounds(count);
+        for (int round = 0; round < rounds && count > 1 && !Thread.currentThread().isInterrupted(); round++) {
+            long now = System.nanoTime();
+            long roundEnd = now + (deadline - now) / (rounds - round);
+            do {
+                for (int i = 0; i < count; i++)
+                    sample(position, candidates[i]);
+            } while (System.nanoTime() < roundEnd && !Thread.currentThread().isInterrupted());
+            count = halve(count);
+        }
+        return moves[best(count)];
+    }
+
+    /**
+     * Searches with a fixed number of playouts, which gives the same amount of work on any machine.
+     * @param position The position to search, it is not changed.
+     * @param budget The total number of playouts.
+     * @return The cell index (x*9+y) of the best move, or -1 if the game is over.
+     */
+    @Override
+    public int search(FastGame position, int budget) {
+        int count = start(position);
+        if (count <= 1)
+            return count == 1 ? moves[0] : -1;
+
+        int rounds = rounds(count);
+        for (int round = 0; round < rounds && count > 1 && !Thread.currentThread().isInterrupted(); round++) {
+            int perMove = Math.max(1, budget / (count * rounds));
+            for (int i = 0; i < count; i++)
+                for (int k = 0; k < perMove; k++)
+                    sample(position, candidates[i]);
+            count = halve(count);
+        }
+        return moves[best(count)];
+    }
+
+    /**
+     * Restarts the randomness of the playouts, so the same seed gives the same search.
+     */
+    @Override
+    public void setSeed(long seed) {
+        rand.setSeed(seed);
+    }
+
+    private int start(FastGame position) {
+        int count = position.legalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            candidates[i] = i;
+            visits[i] = 0;
+            wins[i] = 0;
+        }
+        playouts = 0;
+        return count;
+    }
+
+    private static int rounds(int count) {
+        return 32 - Integer.numberOfLeadingZeros(count - 1); //ceil(log2(count))
+    }
+
+    private void sample(FastGame position, int arm) {
+        int player = position.getCurrentPlayer();
+        game.copyFrom(position);
+        game.play(moves[arm]);
+        int result = game.playout(rand);
+        visits[arm]++;
+        if (result == player)
+            wins[arm] += 1f;
+        else if (result == FastGame.TIE)
+            wins[arm] += 0.5f;
+        playouts++;
+    }
+
+    // Keeps the better half of the candidates, sorted best first
+    private int halve(int count) {
+        for (int i = 1; i < count; i++) {
+            int arm = candidates[i];
+            double value = mean(arm);
+            int k = i - 1;
+            while (k >= 0 && mean(candidates[k]) < value) {
+                candidates[k + 1] = candidates[k];
+                k--;
+            }
+            candidates[k + 1] = arm;
+        }
+        return (count + 1) / 2;
+    }
+
+    private int best(int count) {
+        int best = candidates[0];
+        for (int i = 1; i < count; i++)
+            if (mean(candidates[i]) > mean(best))
+                best = candidates[i];
+        return best;
+    }
+
+    private double mean(int arm) {
+        return visits[arm] == 0 ? 0 : wins[arm] / visits[arm];
+    }
+
+    /**
+     * @return Number of playouts done by the last search.
+     */
+    public int getPlayouts() {
+        return playouts;
+    }
+}
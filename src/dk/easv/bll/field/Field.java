@@ -15,9 +15,11 @@ public class Field implements IField{
         clearBoard();
     }
 
+    /**
+     * Clears the board in place, so a field can be reused for the next game without allocating.
+     */
     @Override
     public void clearBoard() {
-        board = new String[9][9];
         for (int i = 0; i < board.length; i++)
             for (int k = 0; k < board[i].length; k++) {
                 board[i][k] = EMPTY_FIELD;
@@ -0,0 +1,319 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.IField;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Allocation free implementation of the same rules as GameManager, meant for simulations.
+ * Playing a move through GameManager creates Strings, Moves and lists, which is fine for the game itself,
+ * but far too slow when a bot wants to play hundreds of thousands of random games per second.
+ *
+ * Cells are indexed x*9+y, which matches the board[x][y] layout of IField.
+ * Micro boards are indexed (x/3)*3+(y/3), and a cell inside a micro board is a bit (x%3)*3+(y%3)
+ * in a 9 bit mask.
+ */
+public class FastGame {
+
+    /**
+     * Result of a game that is still being played.
+     */
+    public static final int ACTIVE = -1;
+    /**
+     * Result of a tied game, a won game has the id of the winning player (0 or 1) as result.
+     */
+    public static final int TIE = 2;
+
+    public static final int CELLS = 81;
+    private static final int FULL = 0x1FF;
+
+    private static final boolean[] WINNING = new boolean[FULL + 1];
+    private static final int[] CELL_INDEX = new int[CELLS];
+    private static final long[] ZOBRIST_CELLS = new long[2 * CELLS];
+    private static final long[] ZOBRIST_ACTIVE = new long[FULL + 1];
+
+    static {
+        int[] lines = {
+                0b000000111, 0b000111000, 0b111000000, //rows
+                0b001001001, 0b010010010, 0b100100100, //cols
+                0b100010001, 0b001010100};             //diagonals
+        for (int mask = 0; mask <= FULL; mask++)
+            for (int line : lines)
+                if ((mask & line) == line)
+                    WINNING[mask] = true;
+
+        for (int micro = 0; micro < 9; micro++)
+            for (int local = 0; local < 9; local++) {
+                int x = (micro / 3) * 3 + local / 3;
+                int y = (micro % 3) * 3 + local % 3;
+                CELL_INDEX[micro * 9 + local] = x * 9 + y;
+            }
+
+        //Fixed seed, so hashes are the same in every run and can be stored
+        Random rand = new Random(0x5EED_0F_0A11L);
+        for (int i = 0; i < ZOBRIST_CELLS.length; i++)
+            ZOBRIST_CELLS[i] = rand.nextLong();
+        for (int i = 0; i < ZOBRIST_ACTIVE.length; i++)
+            ZOBRIST_ACTIVE[i] = rand.nextLong();
+    }
+
+    private final byte[] cells = new byte[CELLS]; //0 empty, 1 player0, 2 player1
+    private final int[] micro = new int[18];      //cells taken per player and micro board, player*9+micro
+    private final int[] occupied = new int[9];    //cells taken per micro board
+    private final int[] macro = new int[2];       //micro boards won per player
+    private int decided;                          //micro boards won or tied
+    private int active;                           //micro boards the next move may be played in
+    private int currentPlayer;
+    private int moveNumber;
+    private int result;
+    private long cellHash;
+    private final int[] scratch = new int[CELLS];
+
+    public FastGame() {
+        clear();
+    }
+
+    /**
+     * Resets to the empty board with player 0 to move.
+     */
+    public void clear() {
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(micro, 0);
+        Arrays.fill(occupied, 0);
+        macro[0] = 0;
+        macro[1] = 0;
+        decided = 0;
+        active = FULL;
+        currentPlayer = 0;
+        moveNumber = 0;
+        result = ACTIVE;
+        cellHash = 0;
+    }
+
+    /**
+     * Loads the position of a game state.
+     * The player to move is derived from the move number, like the bots do.
+     * @param state The state to copy.
+     */
+    public void load(IGameState state) {
+        clear();
+        String[][] board = state.getField().getBoard();
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                String id = board[x][y];
+                if (id.equals("0") || id.equals("1"))
+                    put(x * 9 + y, id.charAt(0) - '0');
+            }
+
+        String[][] macroBoard = state.getField().getMacroboard();
+        active = 0;
+        decided = 0;
+        macro[0] = 0;
+        macro[1] = 0;
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++) {
+                int bit = 1 << (x * 3 + y);
+                String value = macroBoard[x][y];
+                if (value.equals(IField.AVAILABLE_FIELD))
+                    active |= bit;
+                else if (value.equals("0"))
+                    macro[0] |= bit;
+                else if (value.equals("1"))
+                    macro[1] |= bit;
+                if (!value.equals(IField.AVAILABLE_FIELD) && !value.equals(IField.EMPTY_FIELD))
+                    decided |= bit;
+            }
+
+        moveNumber = state.getMoveNumber();
+        currentPlayer = moveNumber % 2;
+        if (WINNING[macro[0]])
+            result = 0;
+        else if (WINNING[macro[1]])
+            result = 1;
+        else if (decided == FULL)
+            result = TIE;
+    }
+
+    /**
+     * Copies another position into this one, without allocating.
+     * @param other The position to copy.
+     */
+    public void copyFrom(FastGame other) {
+        System.arraycopy(other.cells, 0, cells, 0, CELLS);
+        System.arraycopy(other.micro, 0, micro, 0, micro.length);
+        System.arraycopy(other.occupied, 0, occupied, 0, occupied.length);
+        macro[0] = other.macro[0];
+        macro[1] = other.macro[1];
+        decided = other.decided;
+        active = other.active;
+        currentPlayer = other.currentPlayer;
+        moveNumber = other.moveNumber;
+        result = other.result;
+        cellHash = other.cellHash;
+    }
+
+    private void put(int cell, int player) {
+        int x = cell / 9;
+        int y = cell % 9;
+        int m = (x / 3) * 3 + y / 3;
+        int bit = 1 << ((x % 3) * 3 + y % 3);
+        cells[cell] = (byte) (player + 1);
+        micro[player * 9 + m] |= bit;
+        occupied[m] |= bit;
+        cellHash ^= ZOBRIST_CELLS[player * CELLS + cell];
+    }
+
+    /**
+     * Plays a move for the current player. The move is expected to be legal.
+     * @param cell The cell index (x*9+y) to play.
+     */
+    public void play(int cell) {
+        int player = currentPlayer;
+        put(cell, player);
+
+        int x = cell / 9;
+        int y = cell % 9;
+        int m = (x / 3) * 3 + y / 3;
+        if (WINNING[micro[player * 9 + m]]) {
+            macro[player] |= 1 << m;
+            decided |= 1 << m;
+            if (WINNING[macro[player]])
+                result = player;
+        }
+        else if (occupied[m] == FULL)
+            decided |= 1 << m;
+        if (result == ACTIVE && decided == FULL)
+            result = TIE;
+
+        int target = 1 << ((x % 3) * 3 + y % 3);
+        active = (decided & target) == 0 ? target : ~decided & FULL;
+
+        currentPlayer = 1 - player;
+        moveNumber++;
+    }
+
+    /**
+     * Writes the legal moves to the given array.
+     * @param out Array of at least 81 entries.
+     * @return The number of legal moves written.
+     */
+    public int legalMoves(int[] out) {
+        if (result != ACTIVE)
+            return 0;
+        int count = 0;
+        for (int m = 0; m < 9; m++) {
+            if ((active & (1 << m)) == 0)
+                continue;
+            int free = ~occupied[m] & FULL;
+            while (free != 0) {
+                int local = Integer.numberOfTrailingZeros(free);
+                out[count++] = CELL_INDEX[m * 9 + local];
+                free &= free - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param cell The cell index (x*9+y).
+     * @return Returns true if the current player may play the cell.
+     */
+    public boolean isLegal(int cell) {
+        if (result != ACTIVE || cell < 0 || cell >= CELLS || cells[cell] != 0)
+            return false;
+        int x = cell / 9;
+        int y = cell % 9;
+        return (active & (1 << ((x / 3) * 3 + y / 3))) != 0;
+    }
+
+    /**
+     * Plays uniformly random moves until the game is over.
+     * @param rand The source of randomness.
+     * @return The result of the game, TIE or the id of the winner.
+     */
+    public int playout(Random rand) {
+        while (result == ACTIVE) {
+            int count = legalMoves(scratch);
+            play(scratch[rand.nextInt(count)]);
+        }
+        return result;
+    }
+
+    /**
+     * Hash of the position, equal for equal positions no matter the move order that led to them.
+     * @return 64 bit Zobrist hash.
+     */
+    public long hash() {
+        return cellHash ^ ZOBRIST_ACTIVE[active];
+    }
+
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * @param cell The cell index (x*9+y).
+     * @return 0 for an empty cell, otherwise the player id + 1.
+     */
+    public int getCell(int cell) {
+        return cells[cell];
+    }
+
+    /**
+     * @return Bit mask of the micro boards the next move may be played in.
+     */
+    public int getActiveMask() {
+        return active;
+    }
+
+    /**
+     * @param player The player id.
+     * @return Bit mask of the micro boards won by the player.
+     */
+    public int getMacroMask(int player) {
+        return macro[player];
+    }
+
+    /**
+     * @return Bit mask of the micro boards that are either won or tied.
+     */
+    public int getDecidedMask() {
+        return decided;
+    }
+
+    /**
+     * @param micro The micro board index.
+     * @param player The player id.
+     * @return Bit mask of the cells taken by the player in the micro board.
+     */
+    public int getMicroMask(int micro, int player) {
+        return this.micro[player * 9 + micro];
+    }
+
+    /**
+     * @param cells A 9 bit mask of a micro board or the macro board.
+     * @return Returns true if the mask contains three in a row.
+     */
+    public static boolean isWinningMask(int cells) {
+        return WINNING[cells];
+    }
+
+    public static int toIndex(IMove move) {
+        return move.getX() * 9 + move.getY();
+    }
+
+    public static IMove toMove(int cell) {
+        return new Move(cell / 9, cell % 9);
+    }
+}
@@ -5,14 +5,17 @@ import dk.easv.bll.field.IField;
 import dk.easv.bll.move.IMove;
 import dk.easv.bll.move.Move;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * This is a proposed GameManager for Ultimate Tic-Tac-Toe,
  * the implementation of which is up to whoever uses this interface.
  * Note that initializing a game through the constructors means
  * that you have to create a new instance of the game manager
  * for every new game of a different type (e.g. Human vs Human, Human vs Bot or Bot vs Bot),
- * which may not be ideal for your solution, so you could consider refactoring
- * that into an (re-)initialize method instead.
+ * which may not be ideal for your solution, so reset() can re-initialize a
+ * game manager for a new Bot vs Bot game instead, reusing its state and board.
  * @author mjl
  */
 public class GameManager {
@@ -38,6 +41,14 @@ public class GameManager {
     private IBot bot = null;
     private IBot bot2 = null;
     private volatile GameOverState gameOver = GameOverState.Active;
+    private MoveWatchdog watchdog = null;
+    private boolean timedOut = false;
+    private boolean reuseBotState = false;
+    // The copy of the state given to bots, reused for every move when reuseBotState is set
+    private GameState botState = null;
+    // The cells (x*9+y) played since the game manager was created or reset
+    private final byte[] moves = new byte[81];
+    private int moveCount = 0;
 
     public void setGameOver(GameOverState state) {
         gameOver = state;
@@ -53,10 +64,42 @@ public class GameManager {
         return currentPlayer;
     }
 
+    /**
+     * Makes bot moves run under a watchdog, so a bot can not take longer than the time per move plus a grace period.
+     * Without a watchdog the game waits for a bot as long as it takes.
+     * @param watchdog The watchdog, or null to call the bots directly.
+     */
+    public void setWatchdog(MoveWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Without a watchdog every bot move gets a new copy of the state. Simulations playing millions of moves can
+     * reuse one copy for all moves instead, which only works for bots that do not keep the state between moves.
+     * @param reuseBotState True to reuse the copy of the state given to bots.
+     */
+    public void setReuseBotState(boolean reuseBotState) {
+        this.reuseBotState = reuseBotState;
+    }
+
+    /**
+     * @return Returns true if the current player lost its last move by being too slow under a forfeit watchdog.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
     public IGameState getCurrentState()
     {
         return currentState;
     }
+
+    /**
+     * @return The cells (x*9+y) played since the game manager was created or reset, in order.
+     */
+    public byte[] getMoves() {
+        return Arrays.copyOf(moves, moveCount);
+    }
     private boolean playerGoesFirst = false;
     /**
      * Set's the currentState so the game can begin.
@@ -98,6 +141,26 @@ public class GameManager {
         this.bot2 = bot2;
     }
     
+    /**
+     * Re-initializes the game manager for a new Bot vs Bot game, so simulations can reuse it
+     * instead of creating a new game manager, state and field for every game.
+     * The board is cleared in place, the time per move and watchdog are kept.
+     * @param bot The first bot to play.
+     * @param bot2 The second bot to play.
+     */
+    public void reset(IBot bot, IBot bot2) {
+        currentState.getField().clearBoard();
+        currentState.setMoveNumber(0);
+        currentState.setRoundNumber(0);
+        currentPlayer = 0;
+        gameOver = GameOverState.Active;
+        timedOut = false;
+        moveCount = 0;
+        mode = GameMode.BotVsBot;
+        this.bot = bot;
+        this.bot2 = bot2;
+    }
+
     /**
      * User input driven Update
      * @param move The next user dk.easv.bll.move
@@ -117,6 +180,8 @@ public class GameManager {
     /**
      * Non-User driven input, e.g. an update for playing a bot move.
      * @return Returns true if the update was successful, false otherwise.
+     * False is also returned when the bot was too slow under a forfeit watchdog, see isTimedOut().
+     * Without a watchdog the bot gets a new copy of the state, or the reused one, see setReuseBotState().
      */
     public Boolean updateGame()
     {
@@ -126,13 +191,11 @@ public class GameManager {
         //Check if player is bot, if so, get bot input and update the state based on that.
         if(mode == GameMode.HumanVsBot && currentPlayer == 1 && playerGoesFirst)
         {
-             IMove botMove = bot.doMove(new GameState(currentState));
-             return updateGame(botMove);
+             return updateGame(askBot(bot));
         }
         else if(mode == GameMode.HumanVsBot && !playerGoesFirst && currentPlayer == 0)
         {
-            IMove botMove = bot.doMove(new GameState(currentState));
-            return updateGame(botMove);
+            return updateGame(askBot(bot));
         }
         
         //Check bot is not equal to null, and throw an exception if it is.
@@ -145,17 +208,43 @@ public class GameManager {
             assert(bot != null);
             assert(bot2 != null);
 
-            IMove botMove = currentPlayer == 0 ? bot.doMove(new GameState(currentState)) : bot2.doMove(new GameState(currentState));
-
-            return updateGame(botMove);
+            return updateGame(askBot(currentPlayer == 0 ? bot : bot2));
         }
         return false;
     }
 
 
 
+    // Gets the move of a bot, through the watchdog if there is one, and handles a bot that was too slow
+    private IMove askBot(IBot player)
+    {
+        if (watchdog == null) {
+            if (!reuseBotState)
+                return player.doMove(new GameState(currentState));
+            if (botState == null)
+                botState = new GameState(currentState);
+            else
+                botState.copyFrom(currentState);
+            return player.doMove(botState);
+        }
+
+        // A null move made in time is not a timeout, it fails verifyMoveLegality as an illegal move
+        MoveWatchdog.Result result = watchdog.doMove(player, currentState);
+        timedOut = false;
+        if (!result.isTimedOut())
+            return result.getMove();
+        if (watchdog.getPenalty() == MoveWatchdog.Penalty.RANDOM_MOVE) {
+            List<IMove> moves = currentState.getField().getAvailableMoves();
+            return moves.get(currentState.newRandom().nextInt(moves.size()));
+        }
+        timedOut = true;
+        return null;
+    }
+
     private Boolean verifyMoveLegality(IMove move)
     {
+        if (move == null)
+            return false;
         IField field = currentState.getField();
         boolean isValid=field.isInActiveMicroboard(move.getX(), move.getY());
 
@@ -172,6 +261,8 @@ public class GameManager {
     {
         String[][] board = currentState.getField().getBoard();
         board[move.getX()][move.getY()]=currentPlayer+"";
+        if (moveCount < moves.length)
+            moves[moveCount++] = (byte) (move.getX() * 9 + move.getY());
         currentState.setMoveNumber(currentState.getMoveNumber() + 1);
         if(currentState.getMoveNumber() % 2 == 0) { currentState.setRoundNumber(currentState.getRoundNumber() + 1); }
         checkAndUpdateIfWin(move);
@@ -3,11 +3,21 @@ package dk.easv.bll.game;
 import dk.easv.bll.field.Field;
 import dk.easv.bll.field.IField;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
 public class GameState implements IGameState{
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
     IField field;
     int moveNumber;
     int roundNumber;
     int timePerMove = 1000; //1000ms default value, can be changes depending on game specifics.
+    // Not part of the state sent to remote bots
+    transient boolean cpuTimeBudget = false;
+    transient long moveStart = System.nanoTime();
+    transient long seed = 0;
+    transient int playoutBudget = 0;
 
     public GameState(){
         field = new Field();
@@ -17,11 +27,35 @@ public class GameState implements IGameState{
 
     public GameState(IGameState state) {
         field = new Field();
+        copyFrom(state);
+    }
+
+    /**
+     * Makes this state a copy of another one, reusing the field instead of allocating a new one.
+     * Starts the move clock, like the copy constructor.
+     * @param state The state to copy.
+     */
+    public void copyFrom(IGameState state) {
         field.setMacroboard(state.getField().getMacroboard());
         field.setBoard(state.getField().getBoard());
 
         moveNumber = state.getMoveNumber();
         roundNumber = state.getRoundNumber();
+        timePerMove = state.getTimePerMove();
+        cpuTimeBudget = state.isCpuTimeBudget() && THREADS.isCurrentThreadCpuTimeSupported();
+        seed = state.getSeed();
+        playoutBudget = state.getPlayoutBudget();
+        startMoveClock();
+    }
+
+    /**
+     * Puts the state back to the start of a game, keeping the time per move, budgets and seed.
+     */
+    public void reset() {
+        field.clearBoard();
+        moveNumber = 0;
+        roundNumber = 0;
+        startMoveClock();
     }
 
     @Override
@@ -60,4 +94,56 @@ public class GameState implements IGameState{
     {
         this.timePerMove = milliSeconds;
     }
+
+    @Override
+    public boolean isCpuTimeBudget() {
+        return cpuTimeBudget;
+    }
+
+    @Override
+    public void setCpuTimeBudget(boolean cpuTimeBudget) {
+        this.cpuTimeBudget = cpuTimeBudget && THREADS.isCurrentThreadCpuTimeSupported();
+        startMoveClock();
+    }
+
+    @Override
+    public long getRemainingTimeNanos() {
+        return timePerMove * 1_000_000L - (clock() - moveStart);
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public int getPlayoutBudget() {
+        return playoutBudget;
+    }
+
+    @Override
+    public void setPlayoutBudget(int playouts) {
+        this.playoutBudget = playouts;
+    }
+
+    /**
+     * Starts counting the time per move from now, on the calling thread.
+     * The copy constructor does this, so it only has to be called when the bot runs on another thread.
+     */
+    void startMoveClock() {
+        moveStart = clock();
+    }
+
+    long getMoveStart() {
+        return moveStart;
+    }
+
+    private long clock() {
+        return cpuTimeBudget ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
 }
@@ -2,6 +2,9 @@ package dk.easv.bll.game;
 
 import dk.easv.bll.field.IField;
 
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  *
  * @author mjl
@@ -18,4 +21,71 @@ public interface IGameState {
 
     int getTimePerMove();
     void setTimePerMove(int milliSeconds);
+
+    /**
+     * With a CPU time budget the time per move is counted as CPU time used by the thread the bot is called on,
+     * instead of wall clock time, so bots are not punished for sharing the machine with other games.
+     * Time used by other threads the bot starts itself is not counted.
+     * States that do not support it always count wall clock time.
+     */
+    default boolean isCpuTimeBudget() {
+        return false;
+    }
+
+    default void setCpuTimeBudget(boolean cpuTimeBudget) {
+    }
+
+    /**
+     * @return Nanoseconds left of the time per move, counted from when the bot was asked to move.
+     * Wall clock or CPU time depending on isCpuTimeBudget(). Must be called on the thread the bot was called on.
+     * Negative when the time is up. Long.MAX_VALUE for states that do not keep a move clock.
+     */
+    default long getRemainingTimeNanos() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return Seed of the game, 0 when the game is not seeded. Bots that take their randomness from newRandom()
+     * or getMoveSeed() play the same moves every time a game with the same seed is played.
+     * States that do not support it are never seeded.
+     */
+    default long getSeed() {
+        return 0;
+    }
+
+    default void setSeed(long seed) {
+    }
+
+    /**
+     * @return Playouts a searching bot should use for this move instead of searching for the time per move,
+     * so its moves do not depend on the speed or load of the machine. 0 to search for the time per move,
+     * which is all states that do not support it allow.
+     */
+    default int getPlayoutBudget() {
+        return 0;
+    }
+
+    default void setPlayoutBudget(int playouts) {
+    }
+
+    /**
+     * @return A seed for this move, mixed from the seed of the game and the move number,
+     * or a random seed when the game is not seeded.
+     */
+    default long getMoveSeed() {
+        if (getSeed() == 0)
+            return ThreadLocalRandom.current().nextLong();
+        // The SplitMix64 finalizer, so nearby seeds and move numbers give unrelated seeds
+        long z = getSeed() + (getMoveNumber() + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return A new source of randomness for this move, seeded with getMoveSeed().
+     */
+    default Random newRandom() {
+        return new Random(getMoveSeed());
+    }
 }
@@ -0,0 +1,217 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.move.IMove;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs bot moves on a separate thread and stops waiting for them when the time per move is used up.
+ *
+ * A bot gets the time per move of the game state plus a grace period. A bot that is still thinking then is
+ * interrupted and the game goes on without it, either by giving the game to the opponent or by playing a random
+ * legal move instead. Java cannot stop a thread that ignores interrupts, so a bot that never returns keeps its
+ * thread, but the game does not wait for it. Bots should therefore check Thread.currentThread().isInterrupted()
+ * in their loops and return when it is set.
+ *
+ * A bot instance is not asked for another move while the move it was interrupted in is still running, as both
+ * calls would change the same fields. The watchdog waits up to the time per move for that move to return, and
+ * if it does not the bot is too slow again. The simulator creates a new instance instead, see isAbandoned().
+ *
+ * With a CPU time budget (see IGameState.isCpuTimeBudget()) the bot is stopped when its thread has used the time
+ * in CPU time. A bot that sleeps or waits uses no CPU time, so it is still stopped after ten times the time in
+ * wall clock time.
+ */
+public class MoveWatchdog {
+
+    public enum Penalty {
+        /**
+         * The bot that was too slow loses the game.
+         */
+        FORFEIT,
+        /**
+         * A random legal move is played for the bot that was too slow.
+         */
+        RANDOM_MOVE
+    }
+
+    /**
+     * The move a bot made under the watchdog, or that it ran out of time.
+     */
+    public static final class Result {
+        private static final Result TIMED_OUT = new Result(null, true);
+
+        private final IMove move;
+        private final boolean timedOut;
+
+        private Result(IMove move, boolean timedOut) {
+            this.move = move;
+            this.timedOut = timedOut;
+        }
+
+        /**
+         * @return The move of the bot, null if it ran out of time, but also if it returned null in time.
+         */
+        public IMove getMove() {
+            return move;
+        }
+
+        /**
+         * @return Returns true if the bot was still thinking when its time was up.
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final int WALL_CLOCK_FACTOR = 10;
+
+    private static final ExecutorService BOT_THREADS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "MoveWatchdog bot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Bot instances that were interrupted, with a latch that opens when their move returns
+    private static final Map<IBot, CountDownLatch> ABANDONED = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private final int graceMillis;
+    private final Penalty penalty;
+
+    /**
+     * @param graceMillis Milliseconds a bot may go over the time per move before it is penalized.
+     * @param penalty What happens to a bot that is too slow.
+     */
+    public MoveWatchdog(int graceMillis, Penalty penalty) {
+        if (graceMillis < 0)
+            throw new IllegalArgumentException("Grace period can not be negative, was " + graceMillis);
+        this.graceMillis = graceMillis;
+        this.penalty = penalty;
+    }
+
+    /**
+     * Asks the bot for a move and waits at most the time per move of the state plus the grace period.
+     * @param bot The bot to move.
+     * @param state The state of the game, the bot gets a copy.
+     * @return The move of the bot, or that it was too slow.
+     */
+    public Result doMove(IBot bot, IGameState state) {
+        long limit = (state.getTimePerMove() + (long) graceMillis) * 1_000_000L;
+        if (!awaitAbandoned(bot, limit))
+            return Result.TIMED_OUT;
+        GameState copy = new GameState(state);
+        AtomicLong botThread = new AtomicLong(-1);
+        CountDownLatch done = new CountDownLatch(1);
+        Future<IMove> move = BOT_THREADS.submit(() -> {
+            try {
+                copy.startMoveClock();
+                botThread.set(Thread.currentThread().getId());
+                return bot.doMove(copy);
+            }
+            finally {
+                done.countDown();
+                ABANDONED.remove(bot, done);
+            }
+        });
+        long wallLimit = copy.isCpuTimeBudget() ? limit * WALL_CLOCK_FACTOR : limit;
+        long wallStart = System.nanoTime();
+        try {
+            while (true) {
+                long wallUsed = System.nanoTime() - wallStart;
+                long used = copy.isCpuTimeBudget() ? cpuTimeUsed(botThread.get(), copy) : wallUsed;
+                long wait = Math.min(limit - used, wallLimit - wallUsed);
+                if (wait <= 0) {
+                    move.cancel(true);
+                    abandon(bot, done);
+                    return Result.TIMED_OUT;
+                }
+                try {
+                    // CPU time never runs faster than the wall clock, so waiting this long never overshoots
+                    return new Result(move.get(wait, TimeUnit.NANOSECONDS), false);
+                }
+                catch (TimeoutException ex) {
+                    // Check the time used again
+                }
+            }
+        }
+        catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException(bot.getBotName() + " failed to move", ex.getCause());
+        }
+        catch (InterruptedException ex) {
+            move.cancel(true);
+            abandon(bot, done);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + bot.getBotName(), ex);
+        }
+    }
+
+    /**
+     * @param bot A bot instance.
+     * @return Returns true if the bot was interrupted by a watchdog and is still running that move, so the instance
+     * must not be used by anyone else until it returns.
+     */
+    public static boolean isAbandoned(IBot bot) {
+        CountDownLatch running = ABANDONED.get(bot);
+        if (running == null)
+            return false;
+        if (running.getCount() > 0)
+            return true;
+        ABANDONED.remove(bot, running);
+        return false;
+    }
+
+    // Marks the bot as still running its move, unless the move returned in the meantime
+    private static void abandon(IBot bot, CountDownLatch done) {
+        ABANDONED.put(bot, done);
+        if (done.getCount() == 0)
+            ABANDONED.remove(bot, done);
+    }
+
+    // Waits at most timeout nanoseconds for an interrupted move of the bot to return, true if there is none running
+    private static boolean awaitAbandoned(IBot bot, long timeout) {
+        CountDownLatch running = ABANDONED.get(bot);
+        if (running == null)
+            return true;
+        try {
+            if (!running.await(timeout, TimeUnit.NANOSECONDS))
+                return false;
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + bot.getBotName(), ex);
+        }
+        ABANDONED.remove(bot, running);
+        return true;
+    }
+
+    // CPU time used by the bot thread since it started the move
+    private static long cpuTimeUsed(long threadId, GameState copy) {
+        if (threadId < 0)
+            return 0;
+        long cpuTime = THREADS.getThreadCpuTime(threadId);
+        return cpuTime < 0 ? 0 : cpuTime - copy.getMoveStart();
+    }
+
+    public int getGraceMillis() {
+        return graceMillis;
+    }
+
+    public Penalty getPenalty() {
+        return penalty;
+    }
+}
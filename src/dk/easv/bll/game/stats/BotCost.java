@@ -0,0 +1,47 @@
+package dk.easv.bll.game.stats;
+
+/**
+ * What a bot cost over a number of moves: CPU time used and memory allocated on the thread it was called on.
+ */
+public class BotCost {
+    public static final BotCost NONE = new BotCost(0, 0, 0);
+
+    private final long moves;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    public BotCost(long moves, long cpuNanos, long allocatedBytes) {
+        this.moves = moves;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return Bytes allocated in total, 0 if the JVM can not measure allocations.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public double getCpuMillisPerMove() {
+        return moves == 0 ? 0 : cpuNanos / 1e6 / moves;
+    }
+
+    public double getBytesPerMove() {
+        return moves == 0 ? 0 : (double) allocatedBytes / moves;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f ms CPU, %.1f KB allocated per move",
+                getCpuMillisPerMove(), getBytesPerMove() / 1024);
+    }
+}
@@ -0,0 +1,71 @@
+package dk.easv.bll.game.stats;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up the CPU time and allocated memory of every doMove call of a bot.
+ *
+ * A bot is measured by wrapping it with wrap(), the wrapper samples the thread it is called on before and after
+ * every move. Work done by threads the bot starts itself is not counted. Bots wrapped by the same meter,
+ * e.g. one instance per simulation thread, are counted together.
+ */
+public class BotCostMeter {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    ? (com.sun.management.ThreadMXBean) THREADS : null;
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * @param bot The bot to measure.
+     * @return A bot that plays the same moves and adds what they cost to this meter.
+     */
+    public IBot wrap(IBot bot) {
+        return new IBot() {
+            @Override
+            public IMove doMove(IGameState state) {
+                long threadId = Thread.currentThread().getId();
+                long cpuBefore = cpuTime();
+                long allocatedBefore = allocated(threadId);
+                try {
+                    return bot.doMove(state);
+                }
+                finally {
+                    moves.increment();
+                    cpuNanos.add(cpuTime() - cpuBefore);
+                    allocatedBytes.add(allocated(threadId) - allocatedBefore);
+                }
+            }
+
+            @Override
+            public String getBotName() {
+                return bot.getBotName();
+            }
+        };
+    }
+
+    /**
+     * @return The cost of all moves measured so far.
+     */
+    public BotCost snapshot() {
+        return new BotCost(moves.sum(), cpuNanos.sum(), allocatedBytes.sum());
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocated(long threadId) {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(threadId);
+    }
+}
@@ -0,0 +1,197 @@
+package dk.easv.bll.game.stats;
+
+import dk.easv.bll.game.FastGame;
+import dk.easv.dal.GameLogReader;
+
+import java.io.IOException;
+
+/**
+ * Statistics over the games of a game log: how much moving first is worth, how the first two moves score,
+ * how long games are and in which order the micro boards are decided.
+ *
+ * Every game is replayed through FastGame, and everything is counted in primitive arrays, so going through a log
+ * allocates nothing per game and is bound by reading the file.
+ * Games that end before the board does were lost on time, and are counted in the results but not in the capture
+ * order of the micro boards beyond the point where they stopped.
+ */
+public class GameLogAnalyzer {
+    private static final int RESULTS = 3; // player 0 won, player 1 won, tie
+
+    private final FastGame game = new FastGame();
+    private final long[] results = new long[RESULTS];
+    // Results by first and second move, (first * 81 + second) * 3 + result
+    private final long[] openings = new long[FastGame.CELLS * FastGame.CELLS * RESULTS];
+    private final long[] lengths = new long[FastGame.CELLS + 1];
+    // How often micro board m was the k-th one decided, m * 9 + k
+    private final long[] captureOrder = new long[9 * 9];
+    private long games;
+    private long moves;
+    private long timeouts;
+    private long invalid;
+
+    /**
+     * Adds all the games of a log.
+     * @param log A log positioned before its first game.
+     * @throws IOException If the log could not be read.
+     */
+    public void addAll(GameLogReader log) throws IOException {
+        while (log.next())
+            add(log);
+    }
+
+    /**
+     * Adds the current game of a log.
+     * @param log A log positioned on a game.
+     */
+    public void add(GameLogReader log) {
+        int winner = log.getWinner();
+        int count = log.getMoveCount();
+        if (winner < 0 || winner >= RESULTS) {
+            invalid++;
+            return;
+        }
+        game.clear();
+        int captured = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = log.getMove(i);
+            if (!game.isLegal(cell)) {
+                invalid++;
+                return;
+            }
+            int decided = game.getDecidedMask();
+            game.play(cell);
+            int newlyDecided = game.getDecidedMask() & ~decided;
+            if (newlyDecided != 0)
+                captureOrder[Integer.numberOfTrailingZeros(newlyDecided) * 9 + captured++]++;
+        }
+        if (game.getResult() == FastGame.ACTIVE)
+            timeouts++;
+        games++;
+        moves += count;
+        results[winner]++;
+        lengths[count]++;
+        if (count >= 2)
+            openings[(log.getMove(0) * FastGame.CELLS + log.getMove(1)) * RESULTS + winner]++;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return The score of the player moving first, a win counting 1 and a tie 0.5.
+     */
+    public double getFirstMoveScore() {
+        return games == 0 ? 0 : (results[0] + results[2] / 2.0) / games;
+    }
+
+    public double getAverageLength() {
+        return games == 0 ? 0 : (double) moves / games;
+    }
+
+    /**
+     * @param first The cell of the first move, x*9+y.
+     * @param second The cell of the second move, or -1 for all games with the first move.
+     * @return Wins of player 0, wins of player 1 and ties of the games that started with the moves.
+     */
+    public long[] getOpeningResults(int first, int second) {
+        long[] counts = new long[RESULTS];
+        for (int cell = 0; cell < FastGame.CELLS; cell++)
+            if (second < 0 || cell == second)
+                for (int result = 0; result < RESULTS; result++)
+                    counts[result] += openings[(first * FastGame.CELLS + cell) * RESULTS + result];
+        return counts;
+    }
+
+    /**
+     * @param micro The micro board, (x/3)*3+(y/3).
+     * @return How often the micro board was decided first, second and so on.
+     */
+    public long[] getCaptureOrder(int micro) {
+        long[] counts = new long[9];
+        System.arraycopy(captureOrder, micro * 9, counts, 0, 9);
+        return counts;
+    }
+
+    /**
+     * @return Games that ended before the board did, lost on time.
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return Games skipped because of an illegal move or unknown result.
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * @return The statistics as text: overall results, the score of player 0 for every first move on a 9x9 board,
+     * the best and worst first two moves, and the average capture rank of every micro board on a 3x3 board.
+     */
+    public String toReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d games, %d moves, %.1f moves per game, %d lost on time, %d invalid%n",
+                games, moves, getAverageLength(), timeouts, invalid));
+        report.append(String.format("Player 0 won %d, player 1 won %d, %d ties, first move scores %.1f%%%n",
+                results[0], results[1], results[2], 100 * getFirstMoveScore()));
+
+        report.append(String.format("%nScore of player 0 by first move (games)%n"));
+        for (int x = 0; x < 9; x++) {
+            for (int y = 0; y < 9; y++) {
+                long[] counts = getOpeningResults(x * 9 + y, -1);
+                long total = counts[0] + counts[1] + counts[2];
+                report.append(total == 0 ? String.format("%12s", "-")
+                        : String.format("%5.1f%% %-5s", 100 * score(counts), "(" + total + ")"));
+            }
+            report.append(String.format("%n"));
+        }
+
+        int best = -1;
+        int worst = -1;
+        for (int opening = 0; opening < FastGame.CELLS * FastGame.CELLS; opening++) {
+            long[] counts = getOpeningResults(opening / FastGame.CELLS, opening % FastGame.CELLS);
+            if (counts[0] + counts[1] + counts[2] < 30)
+                continue;
+            if (best < 0 || score(counts) > score(getOpeningResults(best / FastGame.CELLS, best % FastGame.CELLS)))
+                best = opening;
+            if (worst < 0 || score(counts) < score(getOpeningResults(worst / FastGame.CELLS, worst % FastGame.CELLS)))
+                worst = opening;
+        }
+        if (best >= 0) {
+            report.append(String.format("%nFirst two moves with at least 30 games: best for player 0 %s, worst %s%n",
+                    describeOpening(best), describeOpening(worst)));
+        }
+
+        report.append(String.format("%nAverage rank in which the micro boards were decided%n"));
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                long[] counts = getCaptureOrder(x * 3 + y);
+                long total = 0;
+                long rankSum = 0;
+                for (int rank = 0; rank < 9; rank++) {
+                    total += counts[rank];
+                    rankSum += counts[rank] * (rank + 1);
+                }
+                report.append(total == 0 ? String.format("%6s", "-") : String.format("%6.2f", (double) rankSum / total));
+            }
+            report.append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    private String describeOpening(int opening) {
+        int first = opening / FastGame.CELLS;
+        int second = opening % FastGame.CELLS;
+        long[] counts = getOpeningResults(first, second);
+        return String.format("(%d,%d) (%d,%d) %.1f%% of %d", first / 9, first % 9, second / 9, second % 9,
+                100 * score(counts), counts[0] + counts[1] + counts[2]);
+    }
+
+    private static double score(long[] counts) {
+        long total = counts[0] + counts[1] + counts[2];
+        return total == 0 ? 0 : (counts[0] + counts[2] / 2.0) / total;
+    }
+}
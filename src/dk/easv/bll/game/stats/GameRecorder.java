@@ -0,0 +1,18 @@
+package dk.easv.bll.game.stats;
+
+/**
+ * Receives every game a simulation plays, with its moves, e.g. to write them to a log or to aggregate them.
+ * Simulations call it from all their threads at the same time.
+ */
+public interface GameRecorder {
+
+    /**
+     * @param player0 Name of the bot moving first.
+     * @param player1 Name of the bot moving second.
+     * @param winner The winner.
+     * @param seed The seed the game was played with, 0 if it was not seeded.
+     * @param durationNanos How long the game took.
+     * @param moves The cells played, x*9+y.
+     */
+    void record(String player0, String player1, GameResult.Winner winner, long seed, long durationNanos, byte[] moves);
+}
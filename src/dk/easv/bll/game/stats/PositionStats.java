@@ -0,0 +1,247 @@
+package dk.easv.bll.game.stats;
+
+import dk.easv.bll.game.FastGame;
+import dk.easv.dal.GameLogReader;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Win, loss and tie counts of the positions of many games, bucketed by move number, micro boards won by each player
+ * and whether the player to move may play in any micro board (a free move).
+ *
+ * Every game is replayed through FastGame and only the counts of its positions are kept, in one primitive array
+ * per thread that adds games, so a run of any size takes the same few hundred KB per thread. The threads of a
+ * simulation replay their games at the same time and only lock their own counts, the counts of all threads are
+ * added up when they are read. From the counts come win probability curves by move number and heatmaps of the win
+ * probability by micro boards won. It can be fed while a simulation is running, as its GameRecorder, or afterwards
+ * from a game log.
+ */
+public class PositionStats implements GameRecorder {
+    private static final int MOVES = FastGame.CELLS;
+    private static final int WON = 10;       // 0 to 9 micro boards won
+    private static final int FREE = 2;
+    private static final int RESULTS = 3;    // player 0 won, player 1 won, tie
+    private static final int BUCKETS = MOVES * WON * WON * FREE * RESULTS;
+
+    // The counts of every thread that added games
+    private final List<Counts> threadCounts = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Counts> ownCounts = ThreadLocal.withInitial(() -> {
+        Counts own = new Counts();
+        threadCounts.add(own);
+        return own;
+    });
+
+    @Override
+    public void record(String player0, String player1, GameResult.Winner winner, long seed,
+                       long durationNanos, byte[] moves) {
+        ownCounts.get().add(winner.ordinal(), moves, moves.length);
+    }
+
+    /**
+     * Adds all the games of a log.
+     * @param log A log positioned before its first game.
+     * @throws IOException If the log could not be read.
+     */
+    public void addAll(GameLogReader log) throws IOException {
+        Counts own = ownCounts.get();
+        byte[] moves = new byte[FastGame.CELLS];
+        while (log.next()) {
+            int count = log.getMoveCount();
+            for (int i = 0; i < count; i++)
+                moves[i] = (byte) log.getMove(i);
+            own.add(log.getWinner(), moves, count);
+        }
+    }
+
+    public long getGames() {
+        long games = 0;
+        for (Counts own : threadCounts) {
+            synchronized (own) {
+                games += own.games;
+            }
+        }
+        return games;
+    }
+
+    /**
+     * @param move The move number, from 0.
+     * @return How often player 0 won, player 1 won and it was a tie, of the games that reached the move.
+     */
+    public long[] getResultsByMove(int move) {
+        return resultsByMove(merged(), move);
+    }
+
+    /**
+     * @param won0 Micro boards won by player 0.
+     * @param won1 Micro boards won by player 1.
+     * @return How often player 0 won, player 1 won and it was a tie, of the positions with that many boards won.
+     */
+    public long[] getResultsByBoardsWon(int won0, int won1) {
+        return resultsByBoardsWon(merged(), won0, won1);
+    }
+
+    /**
+     * @param free True for positions where the player to move may play in any micro board.
+     * @return How often the player to move won, lost and it was a tie.
+     */
+    public long[] getResultsOfPlayerToMove(boolean free) {
+        return resultsOfPlayerToMove(merged(), free);
+    }
+
+    /**
+     * @return Win probability of player 0 and tie probability every 5 moves, the score of the player to move with
+     * and without a free move, and a heatmap of the score of player 0 by micro boards won by each player.
+     */
+    public String toReport() {
+        long[] counts = merged();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Positions of %d games%n%nMove  Games  P0 wins  P1 wins  Ties%n", getGames()));
+        for (int move = 0; move < MOVES; move += 5) {
+            long[] results = resultsByMove(counts, move);
+            long total = total(results);
+            if (total == 0)
+                break;
+            report.append(String.format("%4d %6d %7.1f%% %7.1f%% %4.1f%%%n", move, total,
+                    100.0 * results[0] / total, 100.0 * results[1] / total, 100.0 * results[2] / total));
+        }
+
+        report.append(String.format("%nScore of the player to move with a free move %.1f%%, without %.1f%%%n",
+                100 * score(resultsOfPlayerToMove(counts, true)), 100 * score(resultsOfPlayerToMove(counts, false))));
+
+        report.append(String.format("%nScore of player 0 by micro boards won, player 0 down, player 1 across%n   "));
+        int shown = 0;
+        for (int won = 0; won < WON; won++)
+            for (int other = 0; other < WON; other++)
+                if (total(resultsByBoardsWon(counts, won, other)) > 0
+                        || total(resultsByBoardsWon(counts, other, won)) > 0)
+                    shown = won;
+        for (int won1 = 0; won1 <= shown; won1++)
+            report.append(String.format("%7d", won1));
+        report.append(String.format("%n"));
+        for (int won0 = 0; won0 <= shown; won0++) {
+            report.append(String.format("%3d", won0));
+            for (int won1 = 0; won1 <= shown; won1++) {
+                long[] results = resultsByBoardsWon(counts, won0, won1);
+                report.append(total(results) == 0 ? String.format("%7s", "-")
+                        : String.format("%6.1f%%", 100 * score(results)));
+            }
+            report.append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Writes every bucket with positions as a line of comma separated values, for plotting elsewhere:
+     * move,won0,won1,free,player0wins,player1wins,ties
+     * @param out Where to write.
+     * @throws IOException If writing failed.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        long[] counts = merged();
+        out.write("move,won0,won1,free,player0wins,player1wins,ties\n");
+        for (int move = 0; move < MOVES; move++)
+            for (int won0 = 0; won0 < WON; won0++)
+                for (int won1 = 0; won1 < WON; won1++)
+                    for (int free = 0; free < FREE; free++) {
+                        int index = index(move, won0, won1, free);
+                        if (counts[index] + counts[index + 1] + counts[index + 2] > 0)
+                            out.write(move + "," + won0 + "," + won1 + "," + free + "," + counts[index] + ","
+                                    + counts[index + 1] + "," + counts[index + 2] + "\n");
+                    }
+    }
+
+    // The counts of all threads added up
+    private long[] merged() {
+        long[] all = new long[BUCKETS];
+        for (Counts own : threadCounts) {
+            synchronized (own) {
+                for (int i = 0; i < BUCKETS; i++)
+                    all[i] += own.counts[i];
+            }
+        }
+        return all;
+    }
+
+    private static long[] resultsByMove(long[] counts, int move) {
+        long[] results = new long[RESULTS];
+        for (int won0 = 0; won0 < WON; won0++)
+            for (int won1 = 0; won1 < WON; won1++)
+                for (int free = 0; free < FREE; free++)
+                    addResults(counts, results, index(move, won0, won1, free));
+        return results;
+    }
+
+    private static long[] resultsByBoardsWon(long[] counts, int won0, int won1) {
+        long[] results = new long[RESULTS];
+        for (int move = 0; move < MOVES; move++)
+            for (int free = 0; free < FREE; free++)
+                addResults(counts, results, index(move, won0, won1, free));
+        return results;
+    }
+
+    private static long[] resultsOfPlayerToMove(long[] counts, boolean free) {
+        long[] results = new long[RESULTS];
+        for (int move = 0; move < MOVES; move++) {
+            long[] byMove = new long[RESULTS];
+            for (int won0 = 0; won0 < WON; won0++)
+                for (int won1 = 0; won1 < WON; won1++)
+                    addResults(counts, byMove, index(move, won0, won1, free ? 1 : 0));
+            int player = move % 2;
+            results[0] += byMove[player];
+            results[1] += byMove[1 - player];
+            results[2] += byMove[2];
+        }
+        return results;
+    }
+
+    private static void addResults(long[] counts, long[] results, int index) {
+        for (int result = 0; result < RESULTS; result++)
+            results[result] += counts[index + result];
+    }
+
+    private static int index(int move, int won0, int won1, int free) {
+        return (((move * WON + won0) * WON + won1) * FREE + free) * RESULTS;
+    }
+
+    private static long total(long[] results) {
+        return results[0] + results[1] + results[2];
+    }
+
+    private static double score(long[] results) {
+        long total = total(results);
+        return total == 0 ? 0 : (results[0] + results[2] / 2.0) / total;
+    }
+
+    // The counts of one thread, counts[(((move * WON + won0) * WON + won1) * FREE + free) * RESULTS + result].
+    // Only that thread adds to them, readers lock them to add them up.
+    private static class Counts {
+        private final long[] counts = new long[BUCKETS];
+        private final FastGame game = new FastGame();
+        private final int[] positions = new int[MOVES];
+        private long games;
+
+        // Counts the result for every position before a move, games with an illegal move are counted up to it.
+        // The game is replayed before taking the lock, so a reader only waits for the counting.
+        void add(int winner, byte[] moves, int count) {
+            if (winner < 0 || winner >= RESULTS)
+                return;
+            int reached = 0;
+            game.clear();
+            for (int i = 0; i < count && i < MOVES && game.isLegal(moves[i]); i++) {
+                int free = Integer.bitCount(game.getActiveMask()) > 1 ? 1 : 0;
+                int won0 = Integer.bitCount(game.getMacroMask(0));
+                int won1 = Integer.bitCount(game.getMacroMask(1));
+                positions[reached++] = index(i, won0, won1, free) + winner;
+                game.play(moves[i]);
+            }
+            synchronized (this) {
+                for (int i = 0; i < reached; i++)
+                    counts[positions[i]]++;
+                games++;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package dk.easv.bll.game.stats;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact running totals of game results, meant for simulations of millions of games.
+ *
+ * Bot names are stored once and pairings refer to them by a small id. For every pairing of bots the number of wins
+ * and ties is counted for all games ever added, three longs per pairing however many games are played.
+ * The newest results can be kept too, for showing them: a ring buffer of an int with the bots and winner and a long
+ * with the time of every result, instead of a GameResult with its own date objects.
+ */
+public class ResultStore {
+    private static final int MAX_BOTS = 1 << 14;
+    private static final int ID_BITS = 14;
+    private static final int ID_MASK = MAX_BOTS - 1;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    // Counts per pairing in the order first played, keyed by player0 id << ID_BITS | player1 id:
+    // wins player0, wins player1, ties
+    private final Map<Integer, long[]> pairings = new LinkedHashMap<>();
+    private long total;
+    // The newest results from recentStart on, wrapping around: player0 id << 16 | player1 id << 2 | winner,
+    // and the time of the result in seconds
+    private final int[] recent;
+    private final long[] recentSeconds;
+    private int recentStart = 0;
+    private int recentCount = 0;
+
+    public ResultStore() {
+        this(0);
+    }
+
+    /**
+     * @param recentResults Number of the newest results to keep, see getRecent().
+     */
+    public ResultStore(int recentResults) {
+        recent = new int[recentResults];
+        recentSeconds = new long[recentResults];
+    }
+
+    public synchronized void add(GameResult result) {
+        int player0 = intern(result.getPlayer0());
+        int player1 = intern(result.getPlayer1());
+        pairings.computeIfAbsent(player0 << ID_BITS | player1, k -> new long[3])[result.getWinner().ordinal()]++;
+        total++;
+        if (recent.length == 0)
+            return;
+        int slot = (recentStart + recentCount) % recent.length;
+        if (recentCount == recent.length)
+            recentStart = (recentStart + 1) % recent.length;
+        else
+            recentCount++;
+        recent[slot] = player0 << 16 | player1 << 2 | result.getWinner().ordinal();
+        recentSeconds[slot] = result.getDate().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @return Number of the newest results kept, at most the number given to the constructor.
+     */
+    public synchronized int getRecentCount() {
+        return recentCount;
+    }
+
+    /**
+     * @param index 0 for the oldest result kept, up to getRecentCount() - 1 for the newest.
+     * @return A new GameResult equal to the one added, with its date to the second.
+     */
+    public synchronized GameResult getRecent(int index) {
+        if (index < 0 || index >= recentCount)
+            throw new IndexOutOfBoundsException("Index " + index + ", " + recentCount + " results kept");
+        int slot = (recentStart + index) % recent.length;
+        int packed = recent[slot];
+        GameResult result = new GameResult(names.get(packed >>> 16), names.get(packed >>> 2 & ID_MASK),
+                GameResult.Winner.values()[packed & 3]);
+        result.setDate(LocalDateTime.ofEpochSecond(recentSeconds[slot], 0, ZoneOffset.UTC));
+        return result;
+    }
+
+    /**
+     * @return Number of results added since the store was created or cleared.
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public synchronized void clear() {
+        total = 0;
+        pairings.clear();
+        recentStart = 0;
+        recentCount = 0;
+    }
+
+    /**
+     * @return The number of games, then a line per pairing with the bot moving first, e.g.
+     * "Random Dude vs Drunken Bot: 120/80/30", the wins of each bot and the ties.
+     */
+    public synchronized String toReport() {
+        StringBuilder report = new StringBuilder(total + " games");
+        for (Map.Entry<Integer, long[]> pairing : pairings.entrySet()) {
+            long[] counts = pairing.getValue();
+            report.append(String.format("%n%s vs %s: %d/%d/%d",
+                    names.get(pairing.getKey() >>> ID_BITS), names.get(pairing.getKey() & ID_MASK),
+                    counts[0], counts[1], counts[2]));
+        }
+        return report.toString();
+    }
+
+    private int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            if (names.size() == MAX_BOTS)
+                throw new IllegalStateException("More than " + MAX_BOTS + " bot names");
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+}
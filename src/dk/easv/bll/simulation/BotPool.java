@@ -0,0 +1,87 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.BotConcurrency;
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.MoveWatchdog;
+import dk.easv.bll.game.stats.BotCostMeter;
+
+/**
+ * Hands out instances of one bot class to the simulation threads, shared, per thread or per game,
+ * as the bot declares with BotConcurrency. Every instance is measured by the same cost meter.
+ * The instances of a Deterministic bot share one memo of their moves by position.
+ * An instance still running a move that a watchdog gave up on is replaced by a new one, so it is never used by two
+ * games at the same time.
+ */
+class BotPool {
+    private final Class<? extends IBot> botClass;
+    private final BotConcurrency.Model model;
+    private final BotCostMeter meter;
+    private final MoveMemo memo;
+    private volatile IBot shared;
+    private final ThreadLocal<IBot> perThread;
+
+    /**
+     * @param botClass The bot class.
+     * @param first An instance already created, used as the shared instance when the bot can be shared.
+     * @param meter The meter measuring the moves of the bot.
+     */
+    BotPool(Class<? extends IBot> botClass, IBot first, BotCostMeter meter) {
+        this.botClass = botClass;
+        this.model = concurrencyOf(botClass);
+        this.meter = meter;
+        memo = OutcomeCache.isDeterministic(botClass) ? new MoveMemo() : null;
+        shared = model == BotConcurrency.Model.SHARED ? wrap(first) : null;
+        perThread = ThreadLocal.withInitial(this::newInstance);
+    }
+
+    /**
+     * @return The instance to use for the next game on the calling thread.
+     */
+    IBot get() {
+        switch (model) {
+            case SHARED:
+                IBot current = shared;
+                return MoveWatchdog.isAbandoned(current) ? replaceShared(current) : current;
+            case PER_GAME:
+                return newInstance();
+            default:
+                IBot bot = perThread.get();
+                if (MoveWatchdog.isAbandoned(bot)) {
+                    bot = newInstance();
+                    perThread.set(bot);
+                }
+                return bot;
+        }
+    }
+
+    BotConcurrency.Model getModel() {
+        return model;
+    }
+
+    Class<? extends IBot> getBotClass() {
+        return botClass;
+    }
+
+    private synchronized IBot replaceShared(IBot abandoned) {
+        if (shared == abandoned)
+            shared = newInstance();
+        return shared;
+    }
+
+    private IBot newInstance() {
+        return wrap(Simulation.newBot(botClass));
+    }
+
+    // The meter goes outside the memo, so the cost of a move is what it cost with the memo
+    private IBot wrap(IBot bot) {
+        return meter.wrap(memo == null ? bot : memo.wrap(bot));
+    }
+
+    /**
+     * @return The concurrency model declared by the bot, PER_THREAD if it declares none.
+     */
+    static BotConcurrency.Model concurrencyOf(Class<? extends IBot> botClass) {
+        BotConcurrency declared = botClass.getAnnotation(BotConcurrency.class);
+        return declared == null ? BotConcurrency.Model.PER_THREAD : declared.value();
+    }
+}
@@ -0,0 +1,85 @@
+package dk.easv.bll.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Bradley-Terry ratings from the results of a tournament, on the Elo scale.
+ *
+ * Every bot gets a strength g, and bot i is expected to score g_i / (g_i + g_j) against bot j. The strengths are
+ * found with the minorization-maximization algorithm, draws count as half a win for both bots. One virtual draw is
+ * added for every pairing, so a bot that never scored still gets a finite rating.
+ */
+public class BradleyTerry {
+    private static final double ELO_PER_NATURAL_LOG = 400 / Math.log(10);
+    private static final int MAX_ITERATIONS = 10_000;
+    private static final double TOLERANCE = 1e-10;
+
+    private final double[] elo;
+    private final double[] error;
+
+    /**
+     * @param score score[i][j] is what bot i scored against bot j, a win counting 1 and a draw 0.5.
+     * @param games games[i][j] is the number of games between bot i and bot j.
+     */
+    public BradleyTerry(double[][] score, double[][] games) {
+        int n = score.length;
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1);
+        double[] total = new double[n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                if (i != j && games[i][j] > 0)
+                    total[i] += score[i][j] + 0.5;
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0;
+            double logSum = 0;
+            for (int i = 0; i < n; i++) {
+                double denominator = 0;
+                for (int j = 0; j < n; j++)
+                    if (i != j && games[i][j] > 0)
+                        denominator += (games[i][j] + 1) / (strength[i] + strength[j]);
+                double next = denominator == 0 ? 1 : total[i] / denominator;
+                change = Math.max(change, Math.abs(Math.log(next / strength[i])));
+                strength[i] = next;
+            }
+            // Only the ratios matter, keep the geometric mean at 1
+            for (int i = 0; i < n; i++)
+                logSum += Math.log(strength[i]);
+            double scale = Math.exp(-logSum / n);
+            for (int i = 0; i < n; i++)
+                strength[i] *= scale;
+            if (change < TOLERANCE)
+                break;
+        }
+
+        elo = new double[n];
+        error = new double[n];
+        for (int i = 0; i < n; i++) {
+            elo[i] = ELO_PER_NATURAL_LOG * Math.log(strength[i]);
+            double information = 0;
+            for (int j = 0; j < n; j++) {
+                if (i == j || games[i][j] == 0)
+                    continue;
+                double p = strength[i] / (strength[i] + strength[j]);
+                information += (games[i][j] + 1) * p * (1 - p);
+            }
+            error[i] = information == 0 ? Double.POSITIVE_INFINITY : ELO_PER_NATURAL_LOG / Math.sqrt(information);
+        }
+    }
+
+    /**
+     * @return The rating of every bot, the average rating is 0.
+     */
+    public double[] getElo() {
+        return elo.clone();
+    }
+
+    /**
+     * @return The standard error of every rating, in Elo. The rating is within 1.96 times it with 95% confidence.
+     * It treats the ratings of the opponents as exact, so it is a bit too small for small tournaments.
+     */
+    public double[] getError() {
+        return error.clone();
+    }
+}
@@ -0,0 +1,38 @@
+package dk.easv.bll.simulation;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * A range of games for a work stealing pool. It splits in halves down to single games,
+ * and idle threads steal the halves not started yet.
+ */
+class GameRange extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final IntConsumer play;
+
+    /**
+     * @param from First game number.
+     * @param to Game number after the last game.
+     * @param play Plays the game with the given number.
+     */
+    GameRange(int from, int to, IntConsumer play) {
+        this.from = from;
+        this.to = to;
+        this.play = play;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= 1) {
+            if (to > from)
+                play.accept(from);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new GameRange(from, middle, play), new GameRange(middle, to, play));
+    }
+}
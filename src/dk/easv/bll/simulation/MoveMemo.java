@@ -0,0 +1,53 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.FastGame;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.move.IMove;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the moves of a deterministic bot by position, so every position is only thought about once
+ * across all games and threads. Positions are found through their Zobrist hash and move number.
+ * When the memo is full, moves of new positions are no longer remembered.
+ */
+class MoveMemo {
+    private static final int MAX_POSITIONS = 1 << 20;
+    private static final long MOVE_NUMBER_MIX = 0x9E3779B97F4A7C15L;
+
+    private final Map<Long, Integer> moves = new ConcurrentHashMap<>();
+    private final ThreadLocal<FastGame> positions = ThreadLocal.withInitial(FastGame::new);
+
+    /**
+     * @param bot A deterministic bot.
+     * @return A bot playing the same moves, looking them up when the position was seen before.
+     */
+    IBot wrap(IBot bot) {
+        return new IBot() {
+            @Override
+            public IMove doMove(IGameState state) {
+                FastGame position = positions.get();
+                position.load(state);
+                long key = position.hash() ^ position.getMoveNumber() * MOVE_NUMBER_MIX;
+                Integer known = moves.get(key);
+                if (known != null)
+                    return FastGame.toMove(known);
+                IMove move = bot.doMove(state);
+                if (move != null && moves.size() < MAX_POSITIONS)
+                    moves.put(key, FastGame.toIndex(move));
+                return move;
+            }
+
+            @Override
+            public String getBotName() {
+                return bot.getBotName();
+            }
+        };
+    }
+
+    int size() {
+        return moves.size();
+    }
+}
@@ -0,0 +1,149 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.game.FastGame;
+import dk.easv.bll.game.GameManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A set of short openings that simulated games start from instead of the empty board.
+ *
+ * Deterministic bots play the same game every time from the empty board, and random ones keep playing the same
+ * first moves, so many games tell little new. Starting each pair of games from a different opening, once with each
+ * bot moving first, makes every game count for more. Openings are random moves, kept only if random playouts from
+ * them score close to 50%, so no opening decides the game by itself.
+ *
+ * An opening is stored as one byte per move, the cell index x*9+y, after a small header.
+ */
+public class OpeningSuite {
+    private static final int MAGIC = 0x5554_4F53; // "UTOS"
+    private static final int BALANCE_PLAYOUTS = 200;
+    private static final int MAX_ATTEMPTS_PER_OPENING = 1000;
+
+    private final int plies;
+    private final byte[] moves;
+
+    private OpeningSuite(int plies, byte[] moves) {
+        this.plies = plies;
+        this.moves = moves;
+    }
+
+    /**
+     * Generates distinct balanced openings.
+     * @param count Number of openings.
+     * @param plies Moves per opening.
+     * @param maxImbalance How far from 50% the random playout score of player 0 may be, e.g. 0.1.
+     * @param seed Seed of the random moves, the same seed gives the same openings.
+     * @return The openings.
+     * @throws IllegalStateException If not enough balanced openings were found.
+     */
+    public static OpeningSuite generate(int count, int plies, double maxImbalance, long seed) {
+        if (count < 1 || plies < 1)
+            throw new IllegalArgumentException("Need at least one opening of at least one move, got "
+                    + count + " of " + plies);
+        Random rand = new Random(seed);
+        FastGame game = new FastGame();
+        FastGame playout = new FastGame();
+        int[] legal = new int[FastGame.CELLS];
+        byte[] moves = new byte[count * plies];
+        Set<Long> seen = new HashSet<>();
+        int found = 0;
+        for (int attempt = 0; found < count; attempt++) {
+            if (attempt >= count * MAX_ATTEMPTS_PER_OPENING)
+                throw new IllegalStateException("Found only " + found + " of " + count + " balanced openings");
+            game.clear();
+            for (int ply = 0; ply < plies && game.getResult() == FastGame.ACTIVE; ply++) {
+                int cell = legal[rand.nextInt(game.legalMoves(legal))];
+                moves[found * plies + ply] = (byte) cell;
+                game.play(cell);
+            }
+            if (game.getResult() != FastGame.ACTIVE || seen.contains(game.hash()))
+                continue;
+            double score = 0;
+            for (int i = 0; i < BALANCE_PLAYOUTS; i++) {
+                playout.copyFrom(game);
+                int result = playout.playout(rand);
+                score += result == 0 ? 1 : result == FastGame.TIE ? 0.5 : 0;
+            }
+            if (Math.abs(score / BALANCE_PLAYOUTS - 0.5) <= maxImbalance) {
+                seen.add(game.hash());
+                found++;
+            }
+        }
+        return new OpeningSuite(plies, moves);
+    }
+
+    public static OpeningSuite load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not an opening suite");
+            int count = in.readInt();
+            int plies = in.readInt();
+            if (count < 1 || plies < 1)
+                throw new IOException(file + " has " + count + " openings of " + plies + " moves");
+            byte[] moves = new byte[count * plies];
+            in.readFully(moves);
+            return new OpeningSuite(plies, moves);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(size());
+            out.writeInt(plies);
+            out.write(moves);
+        }
+    }
+
+    /**
+     * Plays an opening on a game manager that was just reset.
+     * @param opening The index of the opening, taken modulo the number of openings.
+     * @param game The game manager.
+     */
+    public void play(int opening, GameManager game) {
+        int start = (opening % size()) * plies;
+        for (int ply = 0; ply < plies; ply++)
+            if (!game.updateGame(FastGame.toMove(moves[start + ply])))
+                throw new IllegalStateException("Opening " + opening + " has an illegal move");
+    }
+
+    /**
+     * @param opening The index of the opening.
+     * @return The cells of the moves of the opening.
+     */
+    public int[] getMoves(int opening) {
+        int[] cells = new int[plies];
+        for (int ply = 0; ply < plies; ply++)
+            cells[ply] = moves[opening * plies + ply];
+        return cells;
+    }
+
+    /**
+     * @return A 64 bit FNV-1a hash of the moves of all openings, never 0, to tell suites apart without the file.
+     */
+    public long fingerprint() {
+        long hash = 0xCBF29CE484222325L;
+        hash = (hash ^ plies) * 0x100000001B3L;
+        for (byte move : moves)
+            hash = (hash ^ (move & 0xFF)) * 0x100000001B3L;
+        return hash == 0 ? 1 : hash;
+    }
+
+    public int size() {
+        return moves.length / plies;
+    }
+
+    public int getPlies() {
+        return plies;
+    }
+}
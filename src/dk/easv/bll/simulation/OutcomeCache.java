@@ -0,0 +1,84 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.Deterministic;
+import dk.easv.bll.bot.IBot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Outcomes of games between two deterministic bots, which are the same game every time.
+ *
+ * The bots declare it with the Deterministic annotation, and the game is played until the same outcome was seen
+ * CONFIRMATIONS times in a row, so a bot that is not as deterministic as it claims, or that ran out of time once,
+ * does not get one outcome repeated thousands of times. If the outcome ever changes, the pairing is always played.
+ * A game counted from the cache is the last game played, moves and duration included.
+ */
+class OutcomeCache {
+    private static final int CONFIRMATIONS = 2;
+
+    private final Map<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param player0 The class of the bot moving first.
+     * @param player1 The class of the bot moving second.
+     * @param opening The opening the game starts from, or -1 for the empty board.
+     * @param game Plays the game.
+     * @return The known game if both bots are deterministic and the outcome is confirmed, else the played game.
+     */
+    PlayedGame play(Class<? extends IBot> player0, Class<? extends IBot> player1, int opening,
+                    Supplier<PlayedGame> game) {
+        if (!isDeterministic(player0) || !isDeterministic(player1))
+            return game.get();
+        Entry entry = entries.computeIfAbsent(Arrays.asList(player0, player1, opening), key -> new Entry());
+        PlayedGame known = entry.confirmed();
+        if (known != null) {
+            hits.increment();
+            return known;
+        }
+        PlayedGame played = game.get();
+        entry.record(played);
+        return played;
+    }
+
+    /**
+     * @return Returns true if the outcome of the game is confirmed, so play() would count it without playing it.
+     */
+    boolean isConfirmed(Class<? extends IBot> player0, Class<? extends IBot> player1, int opening) {
+        Entry entry = entries.get(Arrays.asList(player0, player1, opening));
+        return entry != null && entry.confirmed() != null;
+    }
+
+    /**
+     * @return Number of games counted from the cache instead of played.
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    static boolean isDeterministic(Class<? extends IBot> botClass) {
+        return botClass.isAnnotationPresent(Deterministic.class);
+    }
+
+    private static class Entry {
+        private PlayedGame last;
+        private int seen;
+        private boolean varies;
+
+        synchronized PlayedGame confirmed() {
+            return !varies && seen >= CONFIRMATIONS ? last : null;
+        }
+
+        synchronized void record(PlayedGame played) {
+            if (last != null && last.winner != played.winner)
+                varies = true;
+            last = played;
+            seen++;
+        }
+    }
+}
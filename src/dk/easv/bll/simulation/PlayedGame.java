@@ -0,0 +1,56 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.stats.GameResult;
+
+/**
+ * The outcome, moves and duration of one simulated game.
+ */
+final class PlayedGame {
+    final GameResult.Winner winner;
+    final byte[] moves;
+    final long nanos;
+
+    private PlayedGame(GameResult.Winner winner, byte[] moves, long nanos) {
+        this.winner = winner;
+        this.moves = moves;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @param runSeed The seed of a run, 0 if it is not seeded.
+     * @param game The number of the game in the run.
+     * @return The seed of the game, different for every game of a seeded run, 0 if the run is not seeded.
+     */
+    static long seedOf(long runSeed, int game) {
+        if (runSeed == 0)
+            return 0;
+        long z = runSeed + (game + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return z == 0 ? 1 : z;
+    }
+
+    /**
+     * Resets a game manager and plays a game on it.
+     * @param manager The game manager of the calling thread.
+     * @param player0 The bot moving first.
+     * @param player1 The bot moving second.
+     * @param openings The openings, or null to start from the empty board.
+     * @param opening The opening to start from, or -1 for the empty board.
+     * @param seed The seed of the game, 0 for an unseeded game.
+     * @return The played game.
+     */
+    static PlayedGame play(GameManager manager, IBot player0, IBot player1, OpeningSuite openings, int opening,
+                           long seed) {
+        long start = System.nanoTime();
+        manager.reset(player0, player1);
+        manager.getCurrentState().setSeed(seed);
+        if (opening >= 0)
+            openings.play(opening, manager);
+        GameResult.Winner winner = Simulation.playGame(manager);
+        return new PlayedGame(winner, manager.getMoves(), System.nanoTime() - start);
+    }
+}
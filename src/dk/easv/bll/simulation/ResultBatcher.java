@@ -0,0 +1,65 @@
+package dk.easv.bll.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects items from many threads and hands them on in batches at a fixed rate.
+ * Used to pass game results to the user interface, which would be flooded if every game posted its own update.
+ *
+ * @param <T> The type of the items.
+ */
+public class ResultBatcher<T> {
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> publisher;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param publisher Called with every non empty batch, from the timer thread.
+     * @param intervalMillis Milliseconds between batches.
+     */
+    public ResultBatcher(Consumer<List<T>> publisher, long intervalMillis) {
+        this.publisher = publisher;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ResultBatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an item for the next batch. Safe to call from any thread.
+     */
+    public void add(T item) {
+        pending.add(item);
+    }
+
+    /**
+     * Stops the timer and publishes whatever is still queued, from the calling thread.
+     */
+    public void stop() {
+        timer.shutdown();
+        try {
+            timer.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private synchronized void flush() {
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = pending.poll()) != null)
+            batch.add(item);
+        if (!batch.isEmpty())
+            publisher.accept(batch);
+    }
+}
@@ -0,0 +1,370 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.mcts.OffHeapTree;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.MoveWatchdog;
+import dk.easv.bll.game.stats.BotCostMeter;
+import dk.easv.bll.game.stats.GameRecorder;
+import dk.easv.bll.game.stats.GameResult;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Plays many bot vs bot games without any user interface, so it can run on a machine without a display.
+ *
+ * Every game is its own task in a work stealing pool, so all threads stay busy until the last game is done,
+ * even when some games take much longer than others. The bots switch colours every game.
+ *
+ * Every worker thread gets its own game manager, which is reset for every game instead of creating a new one.
+ * A bot instance is shared by all threads, used per thread or created per game, as the bot declares with
+ * BotConcurrency.
+ *
+ * The results are counted in LongAdders, so threads finishing games at the same time do not wait on each other.
+ * The CPU time and memory allocated by the moves of each bot are measured as well.
+ */
+public class Simulation {
+    private final Class<? extends IBot> bot1;
+    private final Class<? extends IBot> bot2;
+    private final int games;
+    private final int parallelism;
+    private final int timePerMove;
+    private final String botName1;
+    private final String botName2;
+
+    private final LongAdder winsBot1 = new LongAdder();
+    private final LongAdder winsBot2 = new LongAdder();
+    private final LongAdder ties = new LongAdder();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final BotCostMeter costBot1 = new BotCostMeter();
+    private final BotCostMeter costBot2 = new BotCostMeter();
+    private final BotPool bots1;
+    private final BotPool bots2;
+    private final OutcomeCache outcomes = new OutcomeCache();
+    private final ThreadLocal<GameManager> workerGames = ThreadLocal.withInitial(this::newGame);
+
+    private MoveWatchdog watchdog = null;
+    private boolean cpuTimeBudget = false;
+    private Sprt sprt = null;
+    private OpeningSuite openings = null;
+    private long seed = 0;
+    private int playoutBudget = 0;
+    private GameRecorder recorder = null;
+    private volatile boolean decided = false;
+    private Consumer<GameResult> onGameResult = result -> {};
+    private Consumer<SimulationResult> onFinished = result -> {};
+    private Consumer<RuntimeException> onFailed = ex -> {};
+    private ForkJoinPool pool;
+    private RecursiveAction task;
+    private long startTime;
+    private volatile SimulationResult result;
+
+    /**
+     * @param bot1 The first bot.
+     * @param bot2 The second bot.
+     * @param games Number of games to play.
+     * @param parallelism Number of games played at the same time.
+     * @param timePerMove Milliseconds each bot is told it has per move.
+     */
+    public Simulation(Class<? extends IBot> bot1, Class<? extends IBot> bot2, int games, int parallelism, int timePerMove) {
+        this.bot1 = bot1;
+        this.bot2 = bot2;
+        this.games = games;
+        this.parallelism = parallelism;
+        this.timePerMove = timePerMove;
+        IBot first1 = newBot(bot1);
+        IBot first2 = newBot(bot2);
+        botName1 = first1.getBotName();
+        botName2 = first2.getBotName();
+        bots1 = new BotPool(bot1, first1, costBot1);
+        bots2 = new BotPool(bot2, first2, costBot2);
+    }
+
+    /**
+     * @param watchdog Limits the time the bots may take per move, or null to wait for them as long as they take.
+     */
+    public void setWatchdog(MoveWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * @param cpuTimeBudget True to count the time per move as CPU time of the bot thread instead of wall clock time,
+     * so games running side by side do not eat into each other's thinking time.
+     */
+    public void setCpuTimeBudget(boolean cpuTimeBudget) {
+        this.cpuTimeBudget = cpuTimeBudget;
+    }
+
+    /**
+     * @param openings Openings the games start from, each played twice with the bots swapping colours,
+     * or null to start every game from the empty board.
+     */
+    public void setOpenings(OpeningSuite openings) {
+        this.openings = openings;
+    }
+
+    /**
+     * Seeds every game, so bots that take their randomness from the game state play the same moves every run.
+     * With a playout budget as well, searching bots do the same work on any machine, and a run with the same
+     * seed gives the same results.
+     * @param seed Seed of the run, every game gets its own seed from it and its number. 0 for unseeded games.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param playoutBudget Playouts searching bots use per move instead of searching for the time per move,
+     * or 0 to let them search for the time per move.
+     */
+    public void setPlayoutBudget(int playoutBudget) {
+        this.playoutBudget = playoutBudget;
+    }
+
+    /**
+     * @param recorder Receives the moves of every game, e.g. a GameLogWriter, or null to not keep them.
+     */
+    public void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Stops the simulation early, as soon as the test decides. The number of games is then the most games played.
+     * @param sprt The test, or null to always play all games.
+     */
+    public void setSprt(Sprt sprt) {
+        this.sprt = sprt;
+    }
+
+    public Sprt getSprt() {
+        return sprt;
+    }
+
+    /**
+     * @return Returns true if the simulation stopped early because the SPRT decided.
+     */
+    public boolean isDecided() {
+        return decided;
+    }
+
+    /**
+     * @param onGameResult Called after every game, from the thread that played it.
+     */
+    public void setOnGameResult(Consumer<GameResult> onGameResult) {
+        this.onGameResult = onGameResult;
+    }
+
+    /**
+     * @param onFinished Called once when all games are played, from the thread that played the last one.
+     * It is not called if the simulation failed.
+     */
+    public void setOnFinished(Consumer<SimulationResult> onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * @param onFailed Called once if a bot could not be created or broke the rules, or the simulation was cancelled,
+     * after the games being played are finished.
+     */
+    public void setOnFailed(Consumer<RuntimeException> onFailed) {
+        this.onFailed = onFailed;
+    }
+
+    /**
+     * Starts playing the games and returns right away.
+     */
+    public void start() {
+        startTime = System.currentTimeMillis();
+        pool = new ForkJoinPool(parallelism);
+        task = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                new GameRange(0, games, Simulation.this::playGame).invoke();
+                pool.shutdown();
+                OffHeapTree.releaseAll();
+                if (failure.get() == null) {
+                    result = snapshot();
+                    onFinished.accept(result);
+                }
+                else
+                    onFailed.accept(failure.get());
+            }
+        };
+        pool.execute(task);
+    }
+
+    /**
+     * Waits for a started simulation to finish.
+     * @return The aggregated result.
+     * @throws InterruptedException If interrupted while waiting for the games.
+     * @throws IllegalStateException If a bot could not be created or broke the rules.
+     */
+    public SimulationResult awaitResult() throws InterruptedException {
+        try {
+            task.get();
+        }
+        catch (ExecutionException ex) {
+            throw new IllegalStateException("Simulation failed", ex.getCause());
+        }
+        if (failure.get() != null)
+            throw new IllegalStateException("Simulation failed", failure.get());
+        return result;
+    }
+
+    /**
+     * Plays all the games and waits for them to finish.
+     * @return The aggregated result.
+     * @throws InterruptedException If interrupted while waiting for the games.
+     * @throws IllegalStateException If a bot could not be created or broke the rules.
+     */
+    public SimulationResult run() throws InterruptedException {
+        start();
+        return awaitResult();
+    }
+
+    /**
+     * Stops the simulation, games being played are finished but no new games are started.
+     */
+    public void cancel() {
+        failure.compareAndSet(null, new IllegalStateException("Simulation cancelled"));
+    }
+
+    /**
+     * @return The result of the games played so far.
+     */
+    public SimulationResult snapshot() {
+        return new SimulationResult(botName1, botName2,
+                winsBot1.sum(), winsBot2.sum(), ties.sum(), System.currentTimeMillis() - startTime,
+                costBot1.snapshot(), costBot2.snapshot());
+    }
+
+    public int getCompletedGames() {
+        return (int) (winsBot1.sum() + winsBot2.sum() + ties.sum());
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * When both bots are Deterministic, every game with the same colours and opening is the same game,
+     * so once its outcome is confirmed it is counted without playing it again.
+     * @return Number of games between deterministic bots counted from a known outcome instead of played.
+     */
+    public long getCachedGames() {
+        return outcomes.getHits();
+    }
+
+    private GameManager newGame() {
+        GameManager game = new GameManager(new GameState(), null, null);
+        game.getCurrentState().setTimePerMove(timePerMove);
+        game.getCurrentState().setCpuTimeBudget(cpuTimeBudget);
+        game.getCurrentState().setPlayoutBudget(playoutBudget);
+        game.setWatchdog(watchdog);
+        game.setReuseBotState(true);
+        return game;
+    }
+
+    private void playGame(int game) {
+        if (failure.get() != null || decided)
+            return;
+        try {
+            IBot first = bots1.get();
+            IBot second = bots2.get();
+            boolean swapped = game % 2 == 1;
+            IBot player0 = swapped ? second : first;
+            IBot player1 = swapped ? first : second;
+            int opening = openings == null ? -1 : (game / 2) % openings.size();
+            long gameSeed = PlayedGame.seedOf(seed, game);
+            GameManager manager = workerGames.get();
+            PlayedGame played = outcomes.play(swapped ? bot2 : bot1, swapped ? bot1 : bot2, opening,
+                    () -> PlayedGame.play(manager, player0, player1, openings, opening, gameSeed));
+            GameResult.Winner winner = played.winner;
+            if (winner == GameResult.Winner.tie)
+                ties.increment();
+            else if ((winner == GameResult.Winner.player0) != swapped)
+                winsBot1.increment();
+            else
+                winsBot2.increment();
+            if (sprt != null && sprt.decide(winsBot1.sum(), ties.sum(), winsBot2.sum()) != Sprt.Decision.CONTINUE)
+                decided = true;
+            if (recorder != null)
+                recorder.record(player0.getBotName(), player1.getBotName(), winner, gameSeed, played.nanos, played.moves);
+            onGameResult.accept(new GameResult(player0.getBotName(), player1.getBotName(), winner));
+        }
+        catch (RuntimeException ex) {
+            failure.compareAndSet(null, ex);
+        }
+    }
+
+    /**
+     * Plays one game.
+     * @param player0 The bot moving first.
+     * @param player1 The bot moving second.
+     * @param timePerMove Milliseconds each bot is told it has per move.
+     * @return The winner of the game.
+     */
+    public static GameResult.Winner playGame(IBot player0, IBot player1, int timePerMove) {
+        return playGame(player0, player1, timePerMove, false, null);
+    }
+
+    /**
+     * Plays one game, with the bot moves run under a watchdog.
+     * A bot that is too slow under a forfeit watchdog loses the game.
+     * @param player0 The bot moving first.
+     * @param player1 The bot moving second.
+     * @param timePerMove Milliseconds each bot is told it has per move.
+     * @param cpuTimeBudget True to count the time per move as CPU time instead of wall clock time.
+     * @param watchdog The watchdog, or null to wait for the bots as long as they take.
+     * @return The winner of the game.
+     */
+    public static GameResult.Winner playGame(IBot player0, IBot player1, int timePerMove, boolean cpuTimeBudget,
+                                             MoveWatchdog watchdog) {
+        GameManager game = new GameManager(new GameState(), player0, player1);
+        game.getCurrentState().setTimePerMove(timePerMove);
+        game.getCurrentState().setCpuTimeBudget(cpuTimeBudget);
+        game.setWatchdog(watchdog);
+        return playGame(game);
+    }
+
+    /**
+     * Plays a game from the current state of a game manager until it is over.
+     * @param game A game manager in Bot vs Bot mode.
+     * @return The winner of the game.
+     */
+    public static GameResult.Winner playGame(GameManager game) {
+        int currentPlayer = game.getCurrentPlayer();
+        while (game.getGameOver() == GameManager.GameOverState.Active
+                && game.getCurrentState().getField().getAvailableMoves().size() > 0) {
+            currentPlayer = game.getCurrentPlayer();
+            if (!game.updateGame()) {
+                if (game.isTimedOut())
+                    return currentPlayer == 0 ? GameResult.Winner.player1 : GameResult.Winner.player0;
+                throw new RuntimeException("Bot not following rules!");
+            }
+        }
+        if (game.getGameOver() == GameManager.GameOverState.Tie)
+            return GameResult.Winner.tie;
+        return currentPlayer == 0 ? GameResult.Winner.player0 : GameResult.Winner.player1;
+    }
+
+    /**
+     * Creates a new instance of a bot through its no argument constructor.
+     * @param bot The bot class.
+     * @return The new bot.
+     */
+    public static IBot newBot(Class<? extends IBot> bot) {
+        try {
+            return bot.getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Could not create bot " + bot.getName(), ex);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.game.stats.BotCost;
+
+/**
+ * Aggregated outcome of a simulation between two bots, counted per bot no matter which colour it played,
+ * and what the moves of each bot cost.
+ */
+public class SimulationResult {
+    private final String bot1;
+    private final String bot2;
+    private final long winsBot1;
+    private final long winsBot2;
+    private final long ties;
+    private final long elapsedMillis;
+    private final BotCost costBot1;
+    private final BotCost costBot2;
+
+    public SimulationResult(String bot1, String bot2, long winsBot1, long winsBot2, long ties, long elapsedMillis) {
+        this(bot1, bot2, winsBot1, winsBot2, ties, elapsedMillis, BotCost.NONE, BotCost.NONE);
+    }
+
+    public SimulationResult(String bot1, String bot2, long winsBot1, long winsBot2, long ties, long elapsedMillis,
+                            BotCost costBot1, BotCost costBot2) {
+        this.bot1 = bot1;
+        this.bot2 = bot2;
+        this.winsBot1 = winsBot1;
+        this.winsBot2 = winsBot2;
+        this.ties = ties;
+        this.elapsedMillis = elapsedMillis;
+        this.costBot1 = costBot1;
+        this.costBot2 = costBot2;
+    }
+
+    public String getBot1() {
+        return bot1;
+    }
+
+    public String getBot2() {
+        return bot2;
+    }
+
+    public long getWinsBot1() {
+        return winsBot1;
+    }
+
+    public long getWinsBot2() {
+        return winsBot2;
+    }
+
+    public long getTies() {
+        return ties;
+    }
+
+    public long getGames() {
+        return winsBot1 + winsBot2 + ties;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public BotCost getCostBot1() {
+        return costBot1;
+    }
+
+    public BotCost getCostBot2() {
+        return costBot2;
+    }
+
+    /**
+     * @return Score of bot 1, counting a tie as half a win, between 0 and 1.
+     */
+    public double getScoreBot1() {
+        long games = getGames();
+        return games == 0 ? 0.5 : (winsBot1 + ties / 2.0) / games;
+    }
+
+    @Override
+    public String toString() {
+        String result = bot1 + " vs " + bot2 + " | w/w/t " + winsBot1 + "/" + winsBot2 + "/" + ties;
+        if (costBot1.getMoves() > 0 || costBot2.getMoves() > 0)
+            result += " | " + bot1 + ": " + costBot1 + " | " + bot2 + ": " + costBot2;
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package dk.easv.bll.simulation;
+
+/**
+ * Sequential Probability Ratio Test for bot vs bot matches.
+ *
+ * H0 is that bot 1 is elo0 stronger than bot 2, H1 that it is elo1 stronger. After every game the log likelihood
+ * ratio (LLR) of the results is compared with two bounds given by the error rates alpha (accepting H1 when H0 is
+ * true) and beta (accepting H0 when H1 is true). The match stops as soon as the LLR crosses a bound, which usually
+ * takes several times fewer games than a fixed number of games with the same confidence.
+ *
+ * The LLR uses the normal approximation of the score per game, with draws counted as half a win.
+ */
+public class Sprt {
+
+    public enum Decision {
+        CONTINUE,
+        ACCEPT_H0,
+        ACCEPT_H1
+    }
+
+    private final double elo0;
+    private final double elo1;
+    private final double alpha;
+    private final double beta;
+    private final double lowerBound;
+    private final double upperBound;
+
+    /**
+     * @param elo0 Elo difference of H0, usually 0.
+     * @param elo1 Elo difference of H1, larger than elo0.
+     * @param alpha Chance of accepting H1 when H0 is true, e.g. 0.05.
+     * @param beta Chance of accepting H0 when H1 is true, e.g. 0.05.
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0)
+            throw new IllegalArgumentException("elo1 must be larger than elo0, was " + elo0 + " and " + elo1);
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1)
+            throw new IllegalArgumentException("alpha and beta must be between 0 and 1, was " + alpha + " and " + beta);
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Reads a test from text like "0,10,0.05,0.05" or "0 10", the error rates defaulting to 0.05.
+     * @param text elo0, elo1 and optionally alpha and beta, separated by commas or spaces.
+     * @return The test.
+     */
+    public static Sprt parse(String text) {
+        String[] parts = text.trim().split("[,\\s]+");
+        if (parts.length != 2 && parts.length != 4)
+            throw new IllegalArgumentException("Expected elo0,elo1[,alpha,beta], was " + text);
+        double alpha = parts.length == 4 ? Double.parseDouble(parts[2]) : 0.05;
+        double beta = parts.length == 4 ? Double.parseDouble(parts[3]) : 0.05;
+        return new Sprt(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), alpha, beta);
+    }
+
+    /**
+     * @return The log likelihood ratio of H1 against H0 for the results, seen from bot 1.
+     */
+    public double llr(long wins, long draws, long losses) {
+        if (wins + draws + losses == 0)
+            return 0;
+        if ((wins == 0 ? 0 : 1) + (draws == 0 ? 0 : 1) + (losses == 0 ? 0 : 1) == 1)
+            draws++; // With only one kind of result the variance is 0, so one extra draw is counted
+        double games = wins + draws + losses;
+        double mean = (wins + draws / 2.0) / games;
+        double variance = (wins * square(1 - mean) + draws * square(0.5 - mean) + losses * square(mean)) / games;
+        double score0 = expectedScore(elo0);
+        double score1 = expectedScore(elo1);
+        return games * (score1 - score0) * (2 * mean - score0 - score1) / (2 * variance);
+    }
+
+    public double llr(SimulationResult result) {
+        return llr(result.getWinsBot1(), result.getTies(), result.getWinsBot2());
+    }
+
+    public Decision decide(SimulationResult result) {
+        return decide(result.getWinsBot1(), result.getTies(), result.getWinsBot2());
+    }
+
+    public Decision decide(long wins, long draws, long losses) {
+        double llr = llr(wins, draws, losses);
+        if (llr >= upperBound)
+            return Decision.ACCEPT_H1;
+        if (llr <= lowerBound)
+            return Decision.ACCEPT_H0;
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * @return The LLR with its bounds, and the decision once there is one, e.g. "LLR 1.20 [-2.94, 2.94]".
+     */
+    public String describe(SimulationResult result) {
+        String text = String.format("LLR %.2f [%.2f, %.2f]", llr(result), lowerBound, upperBound);
+        switch (decide(result)) {
+            case ACCEPT_H0:
+                return text + " H0 accepted (elo " + elo0 + ")";
+            case ACCEPT_H1:
+                return text + " H1 accepted (elo " + elo1 + ")";
+            default:
+                return text;
+        }
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    @Override
+    public String toString() {
+        return "SPRT elo0=" + elo0 + " elo1=" + elo1 + " alpha=" + alpha + " beta=" + beta;
+    }
+
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+}
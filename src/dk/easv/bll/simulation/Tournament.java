@@ -0,0 +1,472 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.mcts.OffHeapTree;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.MoveWatchdog;
+import dk.easv.bll.game.stats.BotCost;
+import dk.easv.bll.game.stats.BotCostMeter;
+import dk.easv.bll.game.stats.GameRecorder;
+import dk.easv.bll.game.stats.GameResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Round-robin tournament: every bot plays every other bot the same number of games, half of them moving first.
+ *
+ * All games of all pairings go into one work stealing pool, so every thread stays busy until the very last game
+ * of the tournament instead of waiting for the slowest game of each pairing. The games of a pairing are spread over
+ * the whole tournament, so a snapshot taken halfway already covers every pairing.
+ *
+ * In adaptive mode the same total number of games is played, but not evenly: after a few games per pairing, the
+ * next game always goes to the pairing whose winner is least certain. A Beta posterior is kept over the score of
+ * each pairing, and the pairing with the mean score closest to 50% in standard deviations is chosen, scores within
+ * a small margin of 50% counting as 50%. Games still being played count as played, so the threads spread over the
+ * open pairings. Lopsided pairings stop early and close ones get the games that matter for the ratings.
+ * A pairing whose 95% interval lies within the margin is known to be even, and a pairing whose next game is a
+ * confirmed outcome of two deterministic bots would only replay a known game. Both only get games once no other
+ * pairing is open, and replayed games do not count as samples for the posterior.
+ *
+ * Games between two Deterministic bots are counted from their known outcome once it is confirmed, like in Simulation.
+ *
+ * With a checkpoint file the results and the games done are saved every so often, and a tournament created with the
+ * same bots and number of games can resume from the file, playing only the games that were not done.
+ * Games being played when the run stopped are played again.
+ */
+public class Tournament {
+    private static final int MIN_ADAPTIVE_GAMES = 4;
+    // Scores closer than this to 50% (about 35 Elo) count as a draw, so an even pairing does not take all games
+    private static final double INDIFFERENCE = 0.05;
+
+    private final int gamesPerPairing;
+    private final int parallelism;
+    private final int timePerMove;
+    private final List<Class<? extends IBot>> botClasses;
+    private final List<String> names = new ArrayList<>();
+    private final List<BotPool> pools = new ArrayList<>();
+    private final List<BotCostMeter> costs = new ArrayList<>();
+    private final int[][] pairings;
+
+    // wins[i * n + j] is the number of games bot i won against bot j, draws are stored with i < j
+    private final AtomicLongArray wins;
+    private final AtomicLongArray draws;
+    // Bit g is set when game g is done, set together with the results under the read lock,
+    // so a checkpoint taken under the write lock has results and done games that match
+    private final AtomicLongArray completed;
+    private final ReadWriteLock resultLock = new ReentrantReadWriteLock();
+    private final AtomicLong nextCheckpoint = new AtomicLong();
+    // Held while writing the checkpoint file, so two writes never share its temporary file
+    private final Object checkpointLock = new Object();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final OutcomeCache outcomes = new OutcomeCache();
+    private final ThreadLocal<GameManager> workerGames = ThreadLocal.withInitial(this::newGame);
+
+    // Games started per pairing, and the ones among them that were not replays of a known outcome,
+    // guarded by this, used in adaptive mode
+    private final int[] started;
+    private final int[] samples;
+    private boolean adaptive = false;
+    private OpeningSuite openings = null;
+    private long seed = 0;
+    private int playoutBudget = 0;
+    private GameRecorder recorder = null;
+    private MoveWatchdog watchdog = null;
+    private boolean cpuTimeBudget = false;
+    private Consumer<GameResult> onGameResult = result -> {};
+    private Path checkpointFile = null;
+    private long checkpointMillis;
+    private long previousMillis = 0;
+    private long startTime;
+
+    /**
+     * @param botClasses The bots taking part, at least two.
+     * @param gamesPerPairing Games every bot plays against every other bot, rounded up to an even number
+     * so both bots move first equally often.
+     * @param parallelism Number of games played at the same time.
+     * @param timePerMove Milliseconds each bot is told it has per move.
+     */
+    public Tournament(List<Class<? extends IBot>> botClasses, int gamesPerPairing, int parallelism, int timePerMove) {
+        if (botClasses.size() < 2)
+            throw new IllegalArgumentException("A tournament needs at least two bots, got " + botClasses.size());
+        this.gamesPerPairing = gamesPerPairing + gamesPerPairing % 2;
+        this.parallelism = parallelism;
+        this.timePerMove = timePerMove;
+        this.botClasses = new ArrayList<>(botClasses);
+        for (Class<? extends IBot> botClass : botClasses) {
+            IBot first = Simulation.newBot(botClass);
+            names.add(first.getBotName());
+            BotCostMeter cost = new BotCostMeter();
+            costs.add(cost);
+            pools.add(new BotPool(botClass, first, cost));
+        }
+        int n = botClasses.size();
+        List<int[]> all = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                all.add(new int[]{i, j});
+        pairings = all.toArray(new int[0][]);
+        started = new int[pairings.length];
+        samples = new int[pairings.length];
+        wins = new AtomicLongArray(n * n);
+        draws = new AtomicLongArray(n * n);
+        completed = new AtomicLongArray((getGames() + 63) / 64);
+    }
+
+    /**
+     * @param watchdog Limits the time the bots may take per move, or null to wait for them as long as they take.
+     */
+    public void setWatchdog(MoveWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * @param cpuTimeBudget True to count the time per move as CPU time of the bot thread instead of wall clock time.
+     */
+    public void setCpuTimeBudget(boolean cpuTimeBudget) {
+        this.cpuTimeBudget = cpuTimeBudget;
+    }
+
+    /**
+     * @param adaptive True to give the games to the pairings whose result is least certain,
+     * instead of the same number of games to every pairing. The total number of games stays the same.
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @param openings Openings the games of each pairing start from, each played twice with the bots swapping
+     * colours, or null to start every game from the empty board.
+     */
+    public void setOpenings(OpeningSuite openings) {
+        this.openings = openings;
+    }
+
+    /**
+     * Seeds every game from the seed of the tournament and the number of the game. Together with a playout budget
+     * a tournament played again with the same seed gives the same cross-table, except in adaptive mode with more
+     * than one thread, where which pairing a game goes to depends on which games finished first.
+     * @param seed Seed of the tournament, 0 for unseeded games.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param playoutBudget Playouts searching bots use per move instead of searching for the time per move,
+     * or 0 to let them search for the time per move.
+     */
+    public void setPlayoutBudget(int playoutBudget) {
+        this.playoutBudget = playoutBudget;
+    }
+
+    /**
+     * @param recorder Receives the moves of every game, e.g. a GameLogWriter, or null to not keep them.
+     */
+    public void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Saves the state of the tournament to a file while it runs, and when it stops.
+     * A checkpoint that can not be written while the tournament runs is logged and tried again after the interval,
+     * only failing to write the last one makes run() fail.
+     * @param file The checkpoint file.
+     * @param intervalMillis Milliseconds between checkpoints.
+     */
+    public void setCheckpoint(Path file, long intervalMillis) {
+        this.checkpointFile = file;
+        this.checkpointMillis = intervalMillis;
+    }
+
+    /**
+     * Continues from a checkpoint written by a tournament with the same bots, games, schedule, time per move, seed,
+     * playout budget and openings. Call it after setting those and before run(), which then only plays the games
+     * that were not done.
+     * @param file The checkpoint file.
+     * @throws IOException If the file could not be read.
+     * @throws IllegalArgumentException If the checkpoint is of a different tournament.
+     */
+    public void resume(Path file) throws IOException {
+        TournamentCheckpoint checkpoint = TournamentCheckpoint.read(file);
+        TournamentCheckpoint current = checkpointOf(0, null, null, null);
+        if (!checkpoint.isSameTournament(current) || checkpoint.completed.length != completed.length())
+            throw new IllegalArgumentException(file + " is a checkpoint of a different tournament: "
+                    + checkpoint.describe() + ", this one is " + current.describe());
+        int n = names.size();
+        for (int i = 0; i < n * n; i++) {
+            wins.set(i, checkpoint.wins[i]);
+            draws.set(i, checkpoint.draws[i]);
+        }
+        for (int i = 0; i < completed.length(); i++)
+            completed.set(i, checkpoint.completed[i]);
+        // In adaptive mode the games are tickets, and the rounds continue from the games each pairing finished
+        for (int k = 0; k < pairings.length; k++) {
+            int i = pairings[k][0];
+            int j = pairings[k][1];
+            started[k] = (int) (wins.get(i * n + j) + wins.get(j * n + i) + draws.get(i * n + j));
+            // The checkpoint does not tell which games were replays
+            samples[k] = started[k];
+        }
+        previousMillis = checkpoint.elapsedMillis;
+    }
+
+    /**
+     * @param onGameResult Called after every game, from the thread that played it.
+     */
+    public void setOnGameResult(Consumer<GameResult> onGameResult) {
+        this.onGameResult = onGameResult;
+    }
+
+    /**
+     * Plays all games of the tournament and waits for them to finish.
+     * @return The cross-table and ratings.
+     * @throws IllegalStateException If a bot could not be created or broke the rules.
+     */
+    public TournamentResult run() {
+        startTime = System.currentTimeMillis();
+        nextCheckpoint.set(startTime + checkpointMillis);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new GameRange(0, getGames(), this::playGame));
+        }
+        finally {
+            pool.shutdown();
+            OffHeapTree.releaseAll();
+            if (checkpointFile != null) {
+                try {
+                    writeCheckpoint();
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException("Could not write checkpoint " + checkpointFile, ex);
+                }
+            }
+        }
+        if (failure.get() != null)
+            throw new IllegalStateException("Tournament failed", failure.get());
+        return snapshot();
+    }
+
+    /**
+     * Stops the tournament, games being played are finished but no new games are started.
+     */
+    public void cancel() {
+        failure.compareAndSet(null, new IllegalStateException("Tournament cancelled"));
+    }
+
+    /**
+     * @return The results of the games played so far.
+     */
+    public TournamentResult snapshot() {
+        int n = names.size();
+        long[][] winTable = new long[n][n];
+        long[][] drawTable = new long[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++) {
+                winTable[i][j] = wins.get(i * n + j);
+                drawTable[i][j] = draws.get(Math.min(i, j) * n + Math.max(i, j));
+            }
+        List<BotCost> botCosts = new ArrayList<>();
+        for (BotCostMeter cost : costs)
+            botCosts.add(cost.snapshot());
+        return new TournamentResult(new ArrayList<>(names), winTable, drawTable,
+                previousMillis + System.currentTimeMillis() - startTime, botCosts);
+    }
+
+    /**
+     * @return Number of games in the whole tournament.
+     */
+    public int getGames() {
+        return pairings.length * gamesPerPairing;
+    }
+
+    /**
+     * @return Number of games between deterministic bots counted from a known outcome instead of played.
+     */
+    public long getCachedGames() {
+        return outcomes.getHits();
+    }
+
+    private String[] botClassNames() {
+        return botClasses.stream().map(Class::getName).toArray(String[]::new);
+    }
+
+    private boolean isCompleted(int game) {
+        return (completed.get(game / 64) & (1L << (game % 64))) != 0;
+    }
+
+    // The results are copied under the write lock, so they match the games done, and written after releasing it,
+    // so games finishing meanwhile do not wait for the disk
+    private void writeCheckpoint() throws IOException {
+        int n = names.size();
+        long[] winCounts = new long[n * n];
+        long[] drawCounts = new long[n * n];
+        long[] done = new long[completed.length()];
+        resultLock.writeLock().lock();
+        try {
+            for (int i = 0; i < n * n; i++) {
+                winCounts[i] = wins.get(i);
+                drawCounts[i] = draws.get(i);
+            }
+            for (int i = 0; i < done.length; i++)
+                done[i] = completed.get(i);
+        }
+        finally {
+            resultLock.writeLock().unlock();
+        }
+        TournamentCheckpoint checkpoint =
+                checkpointOf(previousMillis + System.currentTimeMillis() - startTime, winCounts, drawCounts, done);
+        synchronized (checkpointLock) {
+            checkpoint.write(checkpointFile);
+        }
+    }
+
+    private TournamentCheckpoint checkpointOf(long elapsedMillis, long[] winCounts, long[] drawCounts, long[] done) {
+        return new TournamentCheckpoint(botClassNames(), gamesPerPairing, adaptive, timePerMove, cpuTimeBudget, seed,
+                playoutBudget, openings == null ? 0 : openings.fingerprint(), elapsedMillis, winCounts, drawCounts, done);
+    }
+
+    private GameManager newGame() {
+        GameManager game = new GameManager(new GameState(), null, null);
+        game.getCurrentState().setTimePerMove(timePerMove);
+        game.getCurrentState().setCpuTimeBudget(cpuTimeBudget);
+        game.getCurrentState().setPlayoutBudget(playoutBudget);
+        game.setWatchdog(watchdog);
+        game.setReuseBotState(true);
+        return game;
+    }
+
+    // The pairing with the fewest games while under the minimum, then the one whose winner is least certain,
+    // then the settled pairings with the fewest samples, and the pairings that would replay a known game last
+    private int mostUncertainPairing() {
+        int n = names.size();
+        int best = 0;
+        int bestTier = Integer.MAX_VALUE;
+        double bestPriority = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < pairings.length; k++) {
+            int i = pairings[k][0];
+            int j = pairings[k][1];
+            int tier;
+            double priority;
+            if (isReplay(k, started[k])) {
+                tier = 3;
+                priority = started[k];
+            }
+            else if (started[k] < MIN_ADAPTIVE_GAMES) {
+                tier = 0;
+                priority = started[k];
+            }
+            else {
+                long winsI = wins.get(i * n + j);
+                long winsJ = wins.get(j * n + i);
+                long drawn = draws.get(i * n + j);
+                double finished = winsI + winsJ + drawn;
+                double mean = (winsI + drawn / 2.0 + 1) / (finished + 2);
+                double deviation = Math.sqrt(mean * (1 - mean) / (samples[k] + 3));
+                if (Math.abs(mean - 0.5) + 1.96 * deviation <= INDIFFERENCE) {
+                    tier = 2;
+                    priority = samples[k];
+                }
+                else {
+                    tier = 1;
+                    priority = (Math.abs(mean - 0.5) + INDIFFERENCE) / deviation;
+                }
+            }
+            if (tier < bestTier || tier == bestTier && priority < bestPriority) {
+                bestTier = tier;
+                bestPriority = priority;
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    // True if the game of the round of the pairing has a confirmed outcome, so it would not be played
+    private boolean isReplay(int pairing, int round) {
+        boolean swapped = round % 2 == 1;
+        int first = pairings[pairing][swapped ? 1 : 0];
+        int second = pairings[pairing][swapped ? 0 : 1];
+        return outcomes.isConfirmed(pools.get(first).getBotClass(), pools.get(second).getBotClass(), opening(round));
+    }
+
+    private int opening(int round) {
+        return openings == null ? -1 : (round / 2) % openings.size();
+    }
+
+    // Game g is round g / pairings of pairing g % pairings, so every pairing advances at the same pace.
+    // In adaptive mode the pairing is chosen when the game starts, and its round is the number of games it got so far.
+    private void playGame(int game) {
+        if (failure.get() != null || isCompleted(game))
+            return;
+        try {
+            int index = game % pairings.length;
+            int round = game / pairings.length;
+            if (adaptive) {
+                synchronized (this) {
+                    index = mostUncertainPairing();
+                    if (!isReplay(index, started[index]))
+                        samples[index]++;
+                    round = started[index]++;
+                }
+            }
+            int[] pairing = pairings[index];
+            boolean swapped = round % 2 == 1;
+            int first = swapped ? pairing[1] : pairing[0];
+            int second = swapped ? pairing[0] : pairing[1];
+            IBot player0 = pools.get(first).get();
+            IBot player1 = pools.get(second).get();
+            int opening = opening(round);
+            long gameSeed = PlayedGame.seedOf(seed, game);
+            GameManager manager = workerGames.get();
+            PlayedGame played = outcomes.play(pools.get(first).getBotClass(), pools.get(second).getBotClass(),
+                    opening, () -> PlayedGame.play(manager, player0, player1, openings, opening, gameSeed));
+            GameResult.Winner winner = played.winner;
+            int n = names.size();
+            resultLock.readLock().lock();
+            try {
+                if (winner == GameResult.Winner.tie)
+                    draws.incrementAndGet(pairing[0] * n + pairing[1]);
+                else if (winner == GameResult.Winner.player0)
+                    wins.incrementAndGet(first * n + second);
+                else
+                    wins.incrementAndGet(second * n + first);
+                completed.accumulateAndGet(game / 64, 1L << (game % 64), (bits, bit) -> bits | bit);
+            }
+            finally {
+                resultLock.readLock().unlock();
+            }
+            if (recorder != null)
+                recorder.record(player0.getBotName(), player1.getBotName(), winner, gameSeed, played.nanos, played.moves);
+            onGameResult.accept(new GameResult(player0.getBotName(), player1.getBotName(), winner));
+            long due = nextCheckpoint.get();
+            if (checkpointFile != null && System.currentTimeMillis() >= due
+                    && nextCheckpoint.compareAndSet(due, System.currentTimeMillis() + checkpointMillis)) {
+                // The games keep going, the next checkpoint tries again
+                try {
+                    writeCheckpoint();
+                }
+                catch (IOException ex) {
+                    Logger.getLogger(Tournament.class.getName()).log(Level.WARNING,
+                            "Could not write checkpoint " + checkpointFile, ex);
+                }
+            }
+        }
+        catch (RuntimeException ex) {
+            failure.compareAndSet(null, ex);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package dk.easv.bll.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The state of a tournament on disk: which bots play how many games under which settings, the results so far and
+ * which games are done.
+ * It is written to a temporary file that then replaces the checkpoint, so a run killed while writing
+ * leaves the previous checkpoint intact.
+ */
+class TournamentCheckpoint {
+    private static final int MAGIC = 0x5554_4350; // "UTCP"
+    private static final int VERSION = 2;
+
+    final String[] botClasses;
+    final int gamesPerPairing;
+    final boolean adaptive;
+    final int timePerMove;
+    final boolean cpuTimeBudget;
+    final long seed;
+    final int playoutBudget;
+    // OpeningSuite.fingerprint() of the openings, 0 without openings
+    final long openings;
+    final long elapsedMillis;
+    final long[] wins;
+    final long[] draws;
+    // Bit g is set when game g is done
+    final long[] completed;
+
+    TournamentCheckpoint(String[] botClasses, int gamesPerPairing, boolean adaptive, int timePerMove,
+                         boolean cpuTimeBudget, long seed, int playoutBudget, long openings, long elapsedMillis,
+                         long[] wins, long[] draws, long[] completed) {
+        this.botClasses = botClasses;
+        this.gamesPerPairing = gamesPerPairing;
+        this.adaptive = adaptive;
+        this.timePerMove = timePerMove;
+        this.cpuTimeBudget = cpuTimeBudget;
+        this.seed = seed;
+        this.playoutBudget = playoutBudget;
+        this.openings = openings;
+        this.elapsedMillis = elapsedMillis;
+        this.wins = wins;
+        this.draws = draws;
+        this.completed = completed;
+    }
+
+    static TournamentCheckpoint read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(file + " is not a tournament checkpoint of version " + VERSION);
+            String[] botClasses = new String[in.readInt()];
+            for (int i = 0; i < botClasses.length; i++)
+                botClasses[i] = in.readUTF();
+            int gamesPerPairing = in.readInt();
+            boolean adaptive = in.readBoolean();
+            int timePerMove = in.readInt();
+            boolean cpuTimeBudget = in.readBoolean();
+            long seed = in.readLong();
+            int playoutBudget = in.readInt();
+            long openings = in.readLong();
+            long elapsedMillis = in.readLong();
+            long[] wins = readLongs(in);
+            long[] draws = readLongs(in);
+            long[] completed = readLongs(in);
+            return new TournamentCheckpoint(botClasses, gamesPerPairing, adaptive, timePerMove, cpuTimeBudget, seed,
+                    playoutBudget, openings, elapsedMillis, wins, draws, completed);
+        }
+    }
+
+    /**
+     * @return Returns true if the other checkpoint is of a tournament with the same bots, games and settings,
+     * so its results can be added to the results of this one.
+     */
+    boolean isSameTournament(TournamentCheckpoint other) {
+        return Arrays.equals(botClasses, other.botClasses) && gamesPerPairing == other.gamesPerPairing
+                && adaptive == other.adaptive && timePerMove == other.timePerMove
+                && cpuTimeBudget == other.cpuTimeBudget && seed == other.seed
+                && playoutBudget == other.playoutBudget && openings == other.openings;
+    }
+
+    /**
+     * @return The bots, games and settings of the tournament, e.g. for an error message.
+     */
+    String describe() {
+        return Arrays.toString(botClasses) + ", " + gamesPerPairing + " games per pairing"
+                + (adaptive ? ", adaptive" : "")
+                + ", " + timePerMove + " ms " + (cpuTimeBudget ? "CPU time " : "") + "per move"
+                + (seed != 0 ? ", seed " + seed : "")
+                + (playoutBudget > 0 ? ", " + playoutBudget + " playouts" : "")
+                + (openings != 0 ? ", openings " + Long.toHexString(openings) : "");
+    }
+
+    void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(botClasses.length);
+            for (String botClass : botClasses)
+                out.writeUTF(botClass);
+            out.writeInt(gamesPerPairing);
+            out.writeBoolean(adaptive);
+            out.writeInt(timePerMove);
+            out.writeBoolean(cpuTimeBudget);
+            out.writeLong(seed);
+            out.writeInt(playoutBudget);
+            out.writeLong(openings);
+            out.writeLong(elapsedMillis);
+            writeLongs(out, wins);
+            writeLongs(out, draws);
+            writeLongs(out, completed);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long[] readLongs(DataInputStream in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = in.readLong();
+        return values;
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values)
+            out.writeLong(value);
+    }
+}
@@ -0,0 +1,150 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.game.stats.BotCost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Results of a round-robin tournament: the cross-table of every pairing, the Bradley-Terry rating of every bot
+ * and what the moves of each bot cost.
+ */
+public class TournamentResult {
+    private final List<String> bots;
+    private final long[][] wins;
+    private final long[][] draws;
+    private final long elapsedMillis;
+    private final List<BotCost> costs;
+    private final BradleyTerry ratings;
+
+    /**
+     * @param bots The names of the bots.
+     * @param wins wins[i][j] is the number of games bot i won against bot j.
+     * @param draws draws[i][j] is the number of draws between bot i and bot j, the same as draws[j][i].
+     * @param elapsedMillis Time the tournament took so far.
+     */
+    public TournamentResult(List<String> bots, long[][] wins, long[][] draws, long elapsedMillis) {
+        this(bots, wins, draws, elapsedMillis, Collections.nCopies(bots.size(), BotCost.NONE));
+    }
+
+    /**
+     * @param costs What the moves of every bot cost, in the order of the bots.
+     */
+    public TournamentResult(List<String> bots, long[][] wins, long[][] draws, long elapsedMillis,
+                            List<BotCost> costs) {
+        this.bots = bots;
+        this.wins = wins;
+        this.draws = draws;
+        this.elapsedMillis = elapsedMillis;
+        this.costs = costs;
+        int n = bots.size();
+        double[][] score = new double[n][n];
+        double[][] games = new double[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++) {
+                score[i][j] = wins[i][j] + draws[i][j] / 2.0;
+                games[i][j] = getGames(i, j);
+            }
+        ratings = new BradleyTerry(score, games);
+    }
+
+    public List<String> getBots() {
+        return bots;
+    }
+
+    public long getWins(int bot, int opponent) {
+        return wins[bot][opponent];
+    }
+
+    public long getDraws(int bot, int opponent) {
+        return draws[bot][opponent];
+    }
+
+    public long getGames(int bot, int opponent) {
+        return wins[bot][opponent] + wins[opponent][bot] + draws[bot][opponent];
+    }
+
+    public long getGames() {
+        long games = 0;
+        for (int i = 0; i < bots.size(); i++)
+            for (int j = i + 1; j < bots.size(); j++)
+                games += getGames(i, j);
+        return games;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return What the moves of the bot cost in all of its games.
+     */
+    public BotCost getCost(int bot) {
+        return costs.get(bot);
+    }
+
+    /**
+     * @return The rating of every bot in Elo, the average rating is 0.
+     */
+    public double[] getElo() {
+        return ratings.getElo();
+    }
+
+    /**
+     * @return Half the width of the 95% confidence interval of every rating, in Elo.
+     */
+    public double[] getConfidence() {
+        double[] error = ratings.getError();
+        for (int i = 0; i < error.length; i++)
+            error[i] *= 1.96;
+        return error;
+    }
+
+    /**
+     * @return The bots sorted by rating with their 95% confidence interval, followed by the cross-table and,
+     * when the moves were measured, the cost per move of every bot.
+     * A cell of the cross-table is the wins/draws/losses of the bot of the row against the bot of the column.
+     */
+    public String toCrossTable() {
+        int n = bots.size();
+        double[] elo = getElo();
+        double[] confidence = getConfidence();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            order.add(i);
+        order.sort(Comparator.comparingDouble(i -> -elo[i]));
+
+        int width = 4;
+        for (String bot : bots)
+            width = Math.max(width, bot.length());
+        StringBuilder table = new StringBuilder();
+        int rank = 1;
+        for (int i : order)
+            table.append(String.format("%2d. %-" + width + "s %7.1f +/- %.1f%n", rank++, bots.get(i), elo[i], confidence[i]));
+
+        table.append(String.format("%n%-" + (width + 4) + "s", ""));
+        for (int j : order)
+            table.append(String.format(" %14.14s", bots.get(j)));
+        table.append(String.format("%n"));
+        for (int i : order) {
+            table.append(String.format("%-" + (width + 4) + "s", bots.get(i)));
+            for (int j : order)
+                table.append(i == j ? String.format(" %14s", "-")
+                        : String.format(" %14s", wins[i][j] + "/" + draws[i][j] + "/" + wins[j][i]));
+            table.append(String.format("%n"));
+        }
+        if (costs.stream().anyMatch(cost -> cost.getMoves() > 0)) {
+            table.append(String.format("%n"));
+            for (int i : order)
+                table.append(String.format("%-" + (width + 4) + "s %s%n", bots.get(i), costs.get(i)));
+        }
+        return table.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toCrossTable();
+    }
+}
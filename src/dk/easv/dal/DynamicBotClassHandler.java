@@ -13,8 +13,6 @@ import java.net.URLClassLoader;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 
 /**
  *
@@ -54,9 +52,9 @@ public class DynamicBotClassHandler {
                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
     }
     
-    public static ObservableList<IBot> loadBotList() throws IOException, ClassNotFoundException, InstantiationException, IllegalAccessException
+    public static List<IBot> loadBotList() throws IOException, ClassNotFoundException, InstantiationException, IllegalAccessException
     {
-        ObservableList<IBot> bots = FXCollections.observableArrayList();
+        List<IBot> bots = new ArrayList<>();
 
         Path dir = FileSystems.getDefault().getPath("./src/dk/easv/bll/bot");
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.java")) {
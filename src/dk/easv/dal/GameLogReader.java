@@ -0,0 +1,144 @@
+package dk.easv.dal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the games of a log written by GameLogWriter, one after the other.
+ *
+ * The file is memory mapped and the reader is a cursor over it: next() moves to the next game and the getters read
+ * straight from the mapped file, so reading a game allocates nothing and a large log is read as fast as the disk
+ * allows. Files larger than the largest mapping are mapped one window at a time.
+ *
+ * Example:
+ * <pre>
+ * try (GameLogReader games = new GameLogReader(file)) {
+ *     while (games.next())
+ *         moves += games.getMoveCount();
+ * }
+ * </pre>
+ */
+public class GameLogReader implements Closeable {
+    private static final long MAP_WINDOW = 1L << 30;
+    private static final int MAX_RECORD_BYTES = GameLogWriter.GAME_HEADER_BYTES + 255;
+
+    private final FileChannel channel;
+    private final long size;
+    private final String[] names = new String[GameLogWriter.MAX_BOTS];
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int record = -1; // Position of the current game record in the window
+
+    /**
+     * @param file A game log.
+     * @throws IOException If the file could not be read or is not a game log.
+     */
+    public GameLogReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+        if (size < 5 || window.getInt(0) != GameLogWriter.MAGIC || window.get(4) != GameLogWriter.VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a game log of version " + GameLogWriter.VERSION);
+        }
+        window.position(5);
+    }
+
+    /**
+     * Moves to the next game.
+     * @return Returns false when there are no more games.
+     * @throws IOException If the rest of the file could not be mapped.
+     */
+    public boolean next() throws IOException {
+        if (record >= 0)
+            window.position(record + GameLogWriter.GAME_HEADER_BYTES + getMoveCount());
+        while (true) {
+            if (window.remaining() < MAX_RECORD_BYTES && windowStart + window.limit() < size)
+                map(windowStart + window.position());
+            if (!window.hasRemaining())
+                return false;
+            int position = window.position();
+            byte type = window.get(position);
+            if (type == GameLogWriter.GAME_RECORD) {
+                if (window.remaining() < GameLogWriter.GAME_HEADER_BYTES
+                        || window.remaining() < GameLogWriter.GAME_HEADER_BYTES + (window.get(position + 16) & 0xFF))
+                    throw new IOException("Game log ends in the middle of a game at byte " + (windowStart + position));
+                record = position;
+                return true;
+            }
+            if (type != GameLogWriter.NAME_RECORD)
+                throw new IOException("Unknown record type " + type + " at byte " + (windowStart + position));
+            int length = window.getShort(position + 2) & 0xFFFF;
+            if (window.remaining() < 4 + length) {
+                if (windowStart + window.limit() >= size)
+                    throw new IOException("Game log ends in the middle of a name at byte " + (windowStart + position));
+                map(windowStart + position);
+                continue;
+            }
+            int id = window.get(position + 1) & 0xFF;
+            byte[] name = new byte[length];
+            window.position(position + 4);
+            window.get(name);
+            names[id] = new String(name, StandardCharsets.UTF_8);
+        }
+    }
+
+    public int getPlayer0() {
+        return window.get(record + 1) & 0xFF;
+    }
+
+    public int getPlayer1() {
+        return window.get(record + 2) & 0xFF;
+    }
+
+    /**
+     * @return 0 or 1 for the player that won, 2 for a tie, the ordinal of GameResult.Winner.
+     */
+    public int getWinner() {
+        return window.get(record + 3);
+    }
+
+    public long getSeed() {
+        return window.getLong(record + 4);
+    }
+
+    public int getDurationMicros() {
+        return window.getInt(record + 12);
+    }
+
+    public int getMoveCount() {
+        return window.get(record + 16) & 0xFF;
+    }
+
+    /**
+     * @param index The number of the move, from 0.
+     * @return The cell played, x*9+y.
+     */
+    public int getMove(int index) {
+        return window.get(record + GameLogWriter.GAME_HEADER_BYTES + index);
+    }
+
+    /**
+     * @param id A bot id of the current game.
+     * @return The name of the bot.
+     */
+    public String getBotName(int id) {
+        return names[id];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW, size - start));
+        record = -1;
+    }
+}
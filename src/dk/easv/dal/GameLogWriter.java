@@ -0,0 +1,160 @@
+package dk.easv.dal;
+
+import dk.easv.bll.game.stats.GameRecorder;
+import dk.easv.bll.game.stats.GameResult;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Appends the moves of simulated games to a binary log file, so they can be analysed later without playing them again.
+ *
+ * The file starts with the magic number "UTGL" and a version byte, followed by records:
+ * <pre>
+ * name record: 1, bot id (byte), name length (short), name (UTF-8)
+ * game record: 2, bot id of player 0 (byte), bot id of player 1 (byte), winner (byte, 0, 1 or 2 for a tie),
+ *              seed (long), duration in microseconds (int), number of moves (byte), one byte per move (x*9+y)
+ * </pre>
+ * A name record binds an id to a bot name for the records after it, so a file can be appended to by several runs.
+ * Numbers are big-endian.
+ *
+ * Every thread writes its records into its own buffer, which is appended to the file when full, so threads do not
+ * wait on each other for every game. Records are never split between buffers, but the records of different threads
+ * are not in the order the games finished.
+ */
+public class GameLogWriter implements GameRecorder, Closeable {
+    static final int MAGIC = 0x5554_474C; // "UTGL"
+    static final byte VERSION = 1;
+    static final byte NAME_RECORD = 1;
+    static final byte GAME_RECORD = 2;
+    static final int GAME_HEADER_BYTES = 17;
+    static final int MAX_BOTS = 256;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private final ThreadLocal<ByteBuffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+
+    /**
+     * Opens a log for appending, creating it if it does not exist.
+     * @param file The log file.
+     * @throws IOException If the file could not be opened or is not a game log.
+     */
+    public GameLogWriter(Path file) throws IOException {
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                if (Files.size(file) < 5 || in.readInt() != MAGIC || in.readByte() != VERSION)
+                    throw new IOException(file + " is not a game log of version " + VERSION);
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(5).putInt(MAGIC).put(VERSION);
+            header.flip();
+            writeFully(header);
+        }
+    }
+
+    /**
+     * Adds a game to the log. Can be called from any number of threads at the same time.
+     */
+    @Override
+    public void record(String player0, String player1, GameResult.Winner winner, long seed, long durationNanos,
+                       byte[] moves) {
+        int id0 = idOf(player0);
+        int id1 = idOf(player1);
+        ByteBuffer out = buffer.get();
+        synchronized (out) {
+            if (out.remaining() < GAME_HEADER_BYTES + moves.length)
+                flush(out);
+            out.put(GAME_RECORD)
+                    .put((byte) id0)
+                    .put((byte) id1)
+                    .put((byte) winner.ordinal())
+                    .putLong(seed)
+                    .putInt((int) Math.min(Integer.MAX_VALUE, durationNanos / 1000))
+                    .put((byte) moves.length)
+                    .put(moves);
+        }
+    }
+
+    /**
+     * Appends the records buffered by all threads to the file.
+     */
+    public void flush() {
+        synchronized (buffers) {
+            for (ByteBuffer out : buffers)
+                synchronized (out) {
+                    flush(out);
+                }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private ByteBuffer newBuffer() {
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+        synchronized (buffers) {
+            buffers.add(out);
+        }
+        return out;
+    }
+
+    // A new name is written to the file right away, before any buffered game can refer to it
+    private int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+        synchronized (ids) {
+            id = ids.get(name);
+            if (id != null)
+                return id;
+            if (ids.size() >= MAX_BOTS)
+                throw new IllegalStateException("A game log can hold at most " + MAX_BOTS + " bots");
+            id = ids.size();
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer record = ByteBuffer.allocate(4 + bytes.length);
+            record.put(NAME_RECORD).put((byte) (int) id).putShort((short) bytes.length).put(bytes);
+            record.flip();
+            writeFully(record);
+            ids.put(name, id);
+            return id;
+        }
+    }
+
+    private void flush(ByteBuffer out) {
+        out.flip();
+        writeFully(out);
+        out.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) {
+        try {
+            synchronized (channel) {
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package dk.easv.gui;
 
 import com.jfoenix.controls.*;
 import dk.easv.bll.bot.IBot;
-import dk.easv.bll.game.GameManager;
 import dk.easv.bll.game.stats.GameResult;
+import dk.easv.bll.simulation.ResultBatcher;
+import dk.easv.bll.simulation.Simulation;
+import dk.easv.bll.simulation.SimulationResult;
+import dk.easv.bll.simulation.Sprt;
 import dk.easv.dal.DynamicBotClassHandler;
 import static dk.easv.gui.util.FontAwesomeHelper.getFontAwesomeIconFromPlayerId;
 import static dk.easv.dal.DynamicBotClassHandler.loadBotList;
@@ -60,17 +63,22 @@ public class AppController implements Initializable {
     @FXML
     private JFXSlider sliderSpeed;
 
+    private static final long UI_UPDATE_MILLIS = 100;
+
     StatsModel statsModel = new StatsModel();
     @FXML
     private AnchorPane anchorMain;
     private BooleanProperty simulation= new SimpleBooleanProperty(false);
-    private volatile int winsBot1 = 0;
-    private volatile int winsBot2 = 0;
-    private volatile int ties = 0;
     @FXML
     private JFXToggleButton toggleBtnSim;
     @FXML
     private JFXSlider sliderSim;
+    @FXML
+    private JFXToggleButton toggleBtnSprt;
+    @FXML
+    private JFXTextField txtSprt;
+    @FXML
+    private JFXToggleButton toggleBtnCpuTime;
     
     private Stage statsWindow  = null;
 
@@ -80,7 +88,7 @@ public class AppController implements Initializable {
         ObservableList<IBot> bots = FXCollections.observableArrayList();
         try {
             DynamicBotClassHandler.writeBotsToTextFile();
-            bots = loadBotList();
+            bots = FXCollections.observableArrayList(loadBotList());
         }
         catch (IOException | ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
             Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
@@ -146,18 +154,48 @@ public class AppController implements Initializable {
     }
 
     private void startSimulation(long amountOfSimulations) {
-        int multiCores = Runtime.getRuntime().availableProcessors();
-        winsBot1 = 0;
-        winsBot2 = 0;
-        ties = 0;
-        for (int i = 0; i < multiCores; i++) {
-            Thread t = new Thread(
-                    new Simulator(amountOfSimulations/multiCores, 
-                        this.comboBotsLeft.getValue().getClass(), 
-                        this.comboBotsRight.getValue().getClass()));
-            t.setDaemon(true);
-            t.start();
+        try {
+            Simulation sim = new Simulation(
+                    this.comboBotsLeft.getValue().getClass(),
+                    this.comboBotsRight.getValue().getClass(),
+                    (int) amountOfSimulations,
+                    Runtime.getRuntime().availableProcessors(),
+                    BoardModel.TIME_PER_MOVE);
+            // With SPRT the slider gives the most games, the simulation stops when the test decides
+            if (toggleBtnSprt.isSelected())
+                sim.setSprt(Sprt.parse(txtSprt.getText()));
+            // The UI gets the results a batch at a time, so big simulations do not flood the FX thread
+            ResultBatcher<GameResult> batcher = new ResultBatcher<>(batch -> {
+                String progress = describe(sim, sim.snapshot());
+                Platform.runLater(() -> {
+                    statsModel.addGameResults(batch);
+                    statsModel.setLastSimulationResults(progress);
+                });
+            }, UI_UPDATE_MILLIS);
+            sim.setWatchdog(BoardModel.WATCHDOG);
+            // With one game per core the games share the machine, CPU time keeps that from taking thinking time
+            sim.setCpuTimeBudget(toggleBtnCpuTime.isSelected());
+            sim.setOnGameResult(batcher::add);
+            sim.setOnFinished(result -> {
+                batcher.stop();
+                Platform.runLater(() ->
+                        statsModel.setLastSimulationResults(describe(sim, result)));
+            });
+            sim.setOnFailed(ex -> {
+                batcher.stop();
+                Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
+            });
+            sim.start();
         }
+        catch (IllegalStateException | IllegalArgumentException ex) {
+            Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private static String describe(Simulation sim, SimulationResult result) {
+        if (sim.getSprt() == null)
+            return result.toString();
+        return result + " | " + sim.getSprt().describe(result);
     }
 
     @FXML
@@ -167,129 +205,21 @@ public class AppController implements Initializable {
             toggleBtnSim.setSelected(false);
             toggleBtnSim.setDisable(false);
             sliderSim.setDisable(false);
+            toggleBtnSprt.setDisable(false);
+            txtSprt.setDisable(false);
+            toggleBtnCpuTime.setDisable(false);
         } else {
             toggleBtnSim.setSelected(false);
             toggleBtnSim.setDisable(true);
             sliderSim.setDisable(true);
+            toggleBtnSprt.setSelected(false);
+            toggleBtnSprt.setDisable(true);
+            txtSprt.setDisable(true);
+            toggleBtnCpuTime.setSelected(false);
+            toggleBtnCpuTime.setDisable(true);
         }
     }
     
-    private class Simulator implements Runnable{
-        private final long amountOfSimulations;
-        private IBot bot1;
-        private IBot bot2;
-        public Simulator(
-                long amountOfSimulations, 
-                Class<? extends IBot> b1, 
-                Class<? extends IBot> b2) {
-
-            this.amountOfSimulations=amountOfSimulations;
-            try {
-                this.bot1 = b1.newInstance();
-                this.bot2 = b2.newInstance();
-            }
-            catch (InstantiationException ex) {
-                Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
-            }
-            catch (IllegalAccessException ex) {
-                Logger.getLogger(AppController.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
-        
-        @Override
-        public void run() {
-            for (int i = 0; i < amountOfSimulations/2; i++) {
-                BoardModel model = new BoardModel(bot1, bot2);
-                int currentPlayer = 0;
-                while (model.getGameOverState() == GameManager.GameOverState.Active
-                         && model.getGameState().getField().getAvailableMoves().size()>0) {
-                    currentPlayer = model.getCurrentPlayer();
-                    Boolean valid = model.doMove();
-                    if (!valid) {
-                        throw new RuntimeException("Bot not following rules!");
-                    }
-                }
-                // There is a tie
-                if (model.getGameOverState().equals(GameManager.GameOverState.Tie)) {
-                    this.addGameResult(
-                            new GameResult(
-                                    bot1.getBotName(), 
-                                    bot2.getBotName(), 
-                                    GameResult.Winner.tie));
-                    ties++;
-                }
-                else { // There is a winner
-                    GameResult.Winner winResult=null;
-                    if(currentPlayer==0) {
-                        winsBot1++;
-                        winResult = GameResult.Winner.player0;
-                    }
-                    else if(currentPlayer==1){
-                        winsBot2++;
-                        winResult = GameResult.Winner.player1;
-                    }
-                        
-                    this.addGameResult(
-                            new GameResult(
-                                    bot1.getBotName(), 
-                                    bot2.getBotName(), 
-                                    winResult));
-                }
-                
-            }
-            for (int i = 0; i < amountOfSimulations/2; i++) {
-                BoardModel model = new BoardModel(bot2, bot1);
-                int currentPlayer = 0;
-                while (model.getGameOverState() == GameManager.GameOverState.Active
-                         && model.getGameState().getField().getAvailableMoves().size()>0) {
-                    currentPlayer = model.getCurrentPlayer();
-                    Boolean valid = model.doMove();
-                    if (!valid) {
-                        throw new RuntimeException("Bot not following rules!");
-                    }
-                }
-                // There is a tie
-                if (model.getGameOverState().equals(GameManager.GameOverState.Tie)) {
-                    this.addGameResult(
-                            new GameResult(
-                                    bot2.getBotName(), 
-                                    bot1.getBotName(), 
-                                    GameResult.Winner.tie));
-                    ties++;
-                }
-                else { // There is a winner
-                    GameResult.Winner winResult=null;
-                    if(currentPlayer==0) {
-                        winsBot2++;
-                        winResult = GameResult.Winner.player0;
-                    }
-                    else if(currentPlayer==1){
-                        winsBot1++;
-                        winResult = GameResult.Winner.player1;
-                    }
-                        
-                    this.addGameResult(
-                            new GameResult(
-                                    bot2.getBotName(), 
-                                    bot1.getBotName(), 
-                                    winResult));
-                }
-                
-            }
-            setSimulationResults(bot1.getBotName() + " vs " +
-                        bot2.getBotName() + " | " +
-                        "w/w/t " + winsBot1 + "/" +
-                        winsBot2 + "/" + ties);
-        }
-        private void setSimulationResults(String result) {
-            Platform.runLater(()-> 
-                statsModel.setLastSimulationResults(result));
-        }
-        private void addGameResult(GameResult gameResult) {
-            Platform.runLater(()->
-                statsModel.addGameResult(gameResult));
-        }
-    }
     private class CustomIBotListCell extends ListCell<IBot> {
 
         @Override
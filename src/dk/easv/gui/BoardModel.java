@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class BoardModel implements Observable{
-    private static final int TIME_PER_MOVE = 1000; //Each bot is allowed 1000ms per move
+    static final int TIME_PER_MOVE = 1000; //Each bot is allowed 1000ms per move
+    //A bot still thinking 200ms after its time is up loses the game
+    static final MoveWatchdog WATCHDOG = new MoveWatchdog(200, MoveWatchdog.Penalty.FORFEIT);
     private final List<InvalidationListener> listeners = new ArrayList<>();
     private final GameManager game;
     private boolean isForced=false;
@@ -24,10 +26,12 @@ public class BoardModel implements Observable{
     public BoardModel(IBot bot, boolean humanPlaysFirst) {
         game = new GameManager(new GameState(), bot, humanPlaysFirst);
         game.getCurrentState().setTimePerMove(TIME_PER_MOVE);
+        game.setWatchdog(WATCHDOG);
     }
     public BoardModel(IBot bot1, IBot bot2) {
         game = new GameManager(new GameState(), bot1, bot2);
         game.getCurrentState().setTimePerMove(TIME_PER_MOVE);
+        game.setWatchdog(WATCHDOG);
     }
 
     private void notifyAllListeners(){
@@ -92,4 +96,8 @@ public class BoardModel implements Observable{
         return isForced;
     }
 
+    public boolean getIsTimedOut() {
+        return game.isTimedOut();
+    }
+
 }
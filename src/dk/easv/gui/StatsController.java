@@ -17,6 +17,7 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.stage.Stage;
 
@@ -29,6 +30,8 @@ public class StatsController implements Initializable {
 
     @FXML
     private JFXListView<GameResult> listResults;
+    @FXML
+    private Label lblTotals;
 
     private StatsModel statsModel;
     
@@ -42,6 +45,7 @@ public class StatsController implements Initializable {
     public void setStatsModel(StatsModel statsModel, Stage stage) {
         this.statsModel = statsModel;
         listResults.setItems(statsModel.getGameResults());
+        lblTotals.textProperty().bind(statsModel.totalsProperty());
         stage.titleProperty().bind(statsModel.lastSimulationResultsProperty());
     }
 
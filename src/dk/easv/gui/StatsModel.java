@@ -6,23 +6,34 @@
 package dk.easv.gui;
 
 import dk.easv.bll.game.stats.GameResult;
-import javafx.beans.Observable;
+import dk.easv.bll.game.stats.ResultStore;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 
 /**
  *
  * @author jeppjleemoritzled
  */
 public class StatsModel {
-    private final ObservableList<GameResult> gameResults = 
-            FXCollections.observableArrayList();
+    // Only the newest results are shown, all of them are counted in the store
+    private static final int WINDOW = 1000;
+
+    private final ResultStore store = new ResultStore(WINDOW);
+
+    // The list view only asks for the rows it shows, so those are the only GameResults made
+    private final RecentResults gameResults = new RecentResults();
     
     private final StringProperty lastSimulationResults = 
             new SimpleStringProperty("");
 
+    private final StringProperty totals = new SimpleStringProperty("");
+
     public StringProperty lastSimulationResultsProperty() {
         return lastSimulationResults;
     }
@@ -35,17 +46,70 @@ public class StatsModel {
         this.lastSimulationResults.set(lastSimulationResults);
     }
     
+    /**
+     * @return The newest results, at most 1000.
+     */
     public ObservableList<GameResult> getGameResults(){
         return gameResults;
     }
+
+    /**
+     * @return The wins and ties per pairing of all results of this session, not only the ones in the list.
+     */
+    public StringProperty totalsProperty() {
+        return totals;
+    }
     
-    public synchronized void addGameResult(GameResult gr) {
-        gameResults.add(gr);
+    public void addGameResult(GameResult gr) {
+        addGameResults(Collections.singletonList(gr));
     }
 
-    public void clear() {
-        gameResults.clear();
+    /**
+     * Adds many results as one change, so the list view and the totals only update once,
+     * e.g. once per batch of a simulation.
+     */
+    public synchronized void addGameResults(Collection<GameResult> results) {
+        int before = store.getRecentCount();
+        // The results pushed out of the window, for the change event
+        int pushedOut = Math.min(before, Math.max(0, before + results.size() - WINDOW));
+        List<GameResult> removed = new ArrayList<>(pushedOut);
+        for (int i = 0; i < pushedOut; i++)
+            removed.add(store.getRecent(i));
+        for (GameResult gr : results)
+            store.add(gr);
+        gameResults.changed(removed, store.getRecentCount() - (before - pushedOut));
+        totals.set(store.toReport());
+    }
+
+    public synchronized void clear() {
+        List<GameResult> removed = new ArrayList<>(gameResults);
+        store.clear();
+        gameResults.changed(removed, 0);
+        totals.set("");
+    }
+
+    private class RecentResults extends ObservableListBase<GameResult> {
+
+        @Override
+        public GameResult get(int index) {
+            return store.getRecent(index);
+        }
+
+        @Override
+        public int size() {
+            return store.getRecentCount();
+        }
+
+        // The oldest results were removed and the added ones are at the end
+        void changed(List<GameResult> removed, int added) {
+            if (removed.isEmpty() && added == 0)
+                return;
+            beginChange();
+            if (!removed.isEmpty())
+                nextRemove(0, removed);
+            if (added > 0)
+                nextAdd(size() - added, size());
+            endChange();
+        }
     }
-    
-    
 }
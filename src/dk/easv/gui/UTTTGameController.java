@@ -145,7 +145,9 @@ public class UTTTGameController implements Initializable {
         else {
             int winnerId = Integer.parseInt(winner);
             winMsg = getNameFromId(winnerId) + " wins";
-            if(model.getIsForced())
+            if(model.getIsForced() && model.getIsTimedOut())
+                winMsg += " (opponent out of time)";
+            else if(model.getIsForced())
                 winMsg += " (opponent false move)";
             winStatus = winnerId == 0
                     ? GameResult.Winner.player0
@@ -0,0 +1,9 @@
+package dk.easv.bll.bot.mcts;
+
+public class MctsTreeTest extends NodeStoreContract {
+
+    @Override
+    protected NodeStore newStore() {
+        return new MctsTree(16);
+    }
+}
@@ -0,0 +1,139 @@
+package dk.easv.bll.bot.mcts;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests every NodeStore must pass, run by a test class per store.
+ */
+public abstract class NodeStoreContract {
+
+    protected abstract NodeStore newStore();
+
+    @Test
+    public void expandsChildrenAsOneBlock() {
+        NodeStore store = newStore();
+        int root = store.addRoot();
+        int first = expand(store, root, 0, 9);
+        assertEquals(1, first);
+        assertEquals(10, store.size());
+        assertEquals(first, store.firstChild(root));
+        assertEquals(9, store.childCount(root));
+        for (int child = first; child < first + 9; child++) {
+            assertEquals(root, store.parent(child));
+            assertEquals(child - first, store.move(child));
+            assertEquals(NodeStore.NONE, store.firstChild(child));
+        }
+    }
+
+    /**
+     * Root, 9 children, all of them expanded, and the first grandchild of the first child expanded too.
+     * Only the first child and its first child are visited more than once, so after recycling only they
+     * and the root keep their children, with all statistics of the kept nodes unchanged.
+     */
+    @Test
+    public void recycleKeepsTheVisitedSubtree() {
+        NodeStore store = newStore();
+        int root = store.addRoot();
+        int children = expand(store, root, 0, 9);
+        int[] grandchildren = new int[9];
+        for (int i = 0; i < 9; i++)
+            grandchildren[i] = expand(store, children + i, 9 * i, 9);
+        int greatGrandchildren = expand(store, grandchildren[0], 40, 9);
+        assertEquals(1 + 9 + 81 + 9, store.size());
+
+        visit(store, root, 100, 60);
+        visit(store, children, 80, 50);
+        for (int i = 1; i < 9; i++)
+            visit(store, children + i, 1, 1);
+        visit(store, grandchildren[0], 40, 10);
+        visit(store, greatGrandchildren + 3, 7, 3);
+        store.addAmafResult(grandchildren[0] + 1, 1);
+
+        store.recycle();
+
+        assertEquals(1, store.getRecycles());
+        assertEquals(1 + 9 + 9 + 9, store.size());
+        assertEquals(0, root);
+        assertEquals(9, store.childCount(root));
+        assertStats(store, root, 100, 60);
+
+        int first = store.firstChild(root);
+        assertStats(store, first, 80, 50);
+        for (int i = 1; i < 9; i++) {
+            assertEquals(i, store.move(first + i));
+            assertStats(store, first + i, 1, 1);
+            assertEquals("Children of a node visited once are thrown away", NodeStore.NONE, store.firstChild(first + i));
+            assertEquals(0, store.childCount(first + i));
+        }
+
+        int grandchild = store.firstChild(first);
+        assertEquals(9, store.childCount(first));
+        assertEquals(first, store.parent(grandchild));
+        assertStats(store, grandchild, 40, 10);
+        assertEquals(1, store.amafVisits(grandchild + 1));
+        assertEquals(1f, store.amafWins(grandchild + 1), 0);
+        for (int i = 0; i < 9; i++)
+            assertEquals(i, store.move(grandchild + i));
+
+        int greatGrandchild = store.firstChild(grandchild);
+        assertEquals(9, store.childCount(grandchild));
+        for (int i = 0; i < 9; i++) {
+            assertEquals(grandchild, store.parent(greatGrandchild + i));
+            assertEquals(40 + i, store.move(greatGrandchild + i));
+        }
+        assertStats(store, greatGrandchild + 3, 7, 3);
+        // Children are still stored after their parent, which recycling relies on the next time
+        assertTrue(grandchild > first && greatGrandchild > grandchild);
+    }
+
+    @Test
+    public void recycleAfterRecycleKeepsTheTreeConsistent() {
+        NodeStore store = newStore();
+        int root = store.addRoot();
+        int node = root;
+        // A long line of visited nodes with unvisited siblings, recycled twice
+        for (int depth = 0; depth < 20; depth++) {
+            int first = expand(store, node, 0, 9);
+            visit(store, first, 20 - depth, 1);
+            node = first;
+        }
+        int size = store.size();
+        store.recycle();
+        assertTrue(store.size() <= size / 2);
+        assertConsistent(store);
+        store.recycle();
+        assertConsistent(store);
+        assertEquals(9, store.childCount(root));
+    }
+
+    // Every node is stored after its parent, and is one of the children its parent points to
+    private static void assertConsistent(NodeStore store) {
+        for (int node = 1; node < store.size(); node++) {
+            int parent = store.parent(node);
+            assertTrue(parent < node);
+            int first = store.firstChild(parent);
+            assertTrue("Node " + node + " is not a child of " + parent,
+                    first <= node && node < first + store.childCount(parent));
+        }
+    }
+
+    private static int expand(NodeStore store, int node, int firstMove, int count) {
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++)
+            moves[i] = firstMove + i;
+        return store.expand(node, moves, null, count);
+    }
+
+    private static void visit(NodeStore store, int node, int visits, int wins) {
+        for (int i = 0; i < visits; i++)
+            store.addResult(node, i < wins ? 1 : 0);
+    }
+
+    private static void assertStats(NodeStore store, int node, int visits, int wins) {
+        assertEquals("Visits of node " + node, visits, store.visits(node));
+        assertEquals("Wins of node " + node, wins, store.wins(node), 0);
+    }
+}
@@ -0,0 +1,34 @@
+package dk.easv.bll.bot.mcts;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapTreeTest extends NodeStoreContract {
+
+    @Override
+    protected NodeStore newStore() {
+        return new OffHeapTree(4096);
+    }
+
+    @Test
+    public void searchesAgainAfterTheBuffersAreDropped() {
+        OffHeapTree reserved = new OffHeapTree(4096);
+        reserved.reserve();
+        reserved.release();
+        OffHeapTree pooled = new OffHeapTree(4096);
+        assertEquals(0, pooled.addRoot());
+        pooled.release();
+        OffHeapTree.releaseAll();
+        for (OffHeapTree tree : new OffHeapTree[]{reserved, pooled}) {
+            tree.clear();
+            int root = tree.addRoot();
+            assertEquals(1, tree.expand(root, new int[]{40, 41}, null, 2));
+            assertEquals(41, tree.move(2));
+            assertEquals(0, tree.visits(2));
+            tree.release();
+        }
+        assertTrue(OffHeapTree.maxDirectMemory() > 0);
+    }
+}
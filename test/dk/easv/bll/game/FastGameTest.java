@@ -0,0 +1,97 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.IField;
+import dk.easv.bll.move.IMove;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays random games through GameManager and FastGame side by side, which must agree on every rule.
+ */
+public class FastGameTest {
+    private static final int GAMES = 2000;
+
+    @Test
+    public void agreesWithGameManagerOnRandomGames() {
+        Random rand = new Random(42);
+        int[] results = new int[3];
+        int freeMoves = 0;
+        for (int i = 0; i < GAMES; i++) {
+            GameManager manager = new GameManager(new GameState());
+            FastGame fast = new FastGame();
+            int[] moves = new int[FastGame.CELLS];
+            while (fast.getResult() == FastGame.ACTIVE) {
+                int count = fast.legalMoves(moves);
+                assertArrayEquals("Legal moves after " + fast.getMoveNumber() + " moves",
+                        legalMoves(manager), sorted(moves, count));
+                if (count > 9)
+                    freeMoves++;
+                int cell = moves[rand.nextInt(count)];
+                assertTrue(manager.updateGame(FastGame.toMove(cell)));
+                fast.play(cell);
+                assertMacroboard(manager.getCurrentState().getField(), fast);
+                assertLoadsTheSame(manager.getCurrentState(), fast);
+            }
+            results[fast.getResult()]++;
+            if (fast.getResult() == FastGame.TIE)
+                assertEquals(GameManager.GameOverState.Tie, manager.getGameOver());
+            else {
+                assertEquals(GameManager.GameOverState.Win, manager.getGameOver());
+                // The player who made the last move won, GameManager has already passed the turn on
+                assertEquals(fast.getResult(), 1 - manager.getCurrentPlayer());
+            }
+        }
+        // Random games must reach every kind of ending and free moves, or the test proves little
+        assertTrue(Arrays.toString(results), results[0] > 0 && results[1] > 0 && results[2] > 0);
+        assertTrue(freeMoves > 0);
+    }
+
+    private static int[] legalMoves(GameManager manager) {
+        List<IMove> available = manager.getCurrentState().getField().getAvailableMoves();
+        int[] cells = new int[available.size()];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = FastGame.toIndex(available.get(i));
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    private static int[] sorted(int[] moves, int count) {
+        int[] cells = Arrays.copyOf(moves, count);
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    private static void assertMacroboard(IField field, FastGame fast) {
+        String[][] macroboard = field.getMacroboard();
+        for (int micro = 0; micro < 9; micro++) {
+            String owner = macroboard[micro / 3][micro % 3];
+            int bit = 1 << micro;
+            String expected = (fast.getMacroMask(0) & bit) != 0 ? "0"
+                    : (fast.getMacroMask(1) & bit) != 0 ? "1"
+                    : (fast.getDecidedMask() & bit) != 0 ? "TIE" : null;
+            if (expected == null)
+                assertTrue("Micro board " + micro + " is " + owner,
+                        owner.equals(IField.EMPTY_FIELD) || owner.equals(IField.AVAILABLE_FIELD));
+            else
+                assertEquals("Micro board " + micro, expected, owner);
+        }
+    }
+
+    private static void assertLoadsTheSame(IGameState state, FastGame fast) {
+        if (fast.getResult() != FastGame.ACTIVE)
+            return;
+        FastGame loaded = new FastGame();
+        loaded.load(state);
+        assertEquals(fast.hash(), loaded.hash());
+        assertEquals(fast.getCurrentPlayer(), loaded.getCurrentPlayer());
+        assertEquals(fast.getActiveMask(), loaded.getActiveMask());
+        assertEquals(fast.getDecidedMask(), loaded.getDecidedMask());
+    }
+}
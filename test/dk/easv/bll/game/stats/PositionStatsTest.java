@@ -0,0 +1,79 @@
+package dk.easv.bll.game.stats;
+
+import dk.easv.bll.game.FastGame;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PositionStatsTest {
+
+    @Test
+    public void countsEveryPositionOfAGame() {
+        PositionStats stats = new PositionStats();
+        byte[] moves = randomGame(new Random(1));
+        stats.record("a", "b", GameResult.Winner.player1, 0, 0, moves);
+        assertEquals(1, stats.getGames());
+        for (int move = 0; move < moves.length; move++)
+            assertArrayEquals(new long[]{0, 1, 0}, stats.getResultsByMove(move));
+        assertArrayEquals(new long[3], stats.getResultsByMove(moves.length));
+        // Every position is counted once, from the side of the player to move
+        long[] free = stats.getResultsOfPlayerToMove(true);
+        long[] notFree = stats.getResultsOfPlayerToMove(false);
+        assertEquals(moves.length, free[0] + free[1] + notFree[0] + notFree[1]);
+        assertEquals(moves.length / 2, free[0] + notFree[0]);
+    }
+
+    @Test
+    public void threadsCountTheSameAsOneThread() throws Exception {
+        Random rand = new Random(2);
+        List<byte[]> games = new ArrayList<>();
+        for (int i = 0; i < 4000; i++)
+            games.add(randomGame(rand));
+        PositionStats alone = new PositionStats();
+        for (int i = 0; i < games.size(); i++)
+            alone.record("a", "b", GameResult.Winner.values()[i % 3], i, 0, games.get(i));
+
+        PositionStats shared = new PositionStats();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < games.size(); i++) {
+            int game = i;
+            threads.execute(() -> shared.record("a", "b", GameResult.Winner.values()[game % 3], game, 0,
+                    games.get(game)));
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(games.size(), shared.getGames());
+        assertEquals(alone.toReport(), shared.toReport());
+        StringWriter aloneCsv = new StringWriter();
+        StringWriter sharedCsv = new StringWriter();
+        alone.writeCsv(aloneCsv);
+        shared.writeCsv(sharedCsv);
+        assertEquals(aloneCsv.toString(), sharedCsv.toString());
+    }
+
+    private static byte[] randomGame(Random rand) {
+        FastGame game = new FastGame();
+        int[] legal = new int[FastGame.CELLS];
+        byte[] moves = new byte[FastGame.CELLS];
+        int count = 0;
+        while (game.getResult() == FastGame.ACTIVE) {
+            int cell = legal[rand.nextInt(game.legalMoves(legal))];
+            moves[count++] = (byte) cell;
+            game.play(cell);
+        }
+        byte[] played = new byte[count];
+        System.arraycopy(moves, 0, played, 0, count);
+        return played;
+    }
+}
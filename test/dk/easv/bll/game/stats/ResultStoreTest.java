@@ -0,0 +1,47 @@
+package dk.easv.bll.game.stats;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultStoreTest {
+
+    @Test
+    public void keepsTheNewestResultsAndCountsAll() {
+        ResultStore store = new ResultStore(3);
+        String[] bots = {"Random Dude", "Drunken Bot", "RAVE MCTS"};
+        for (int i = 0; i < 10; i++) {
+            GameResult result = new GameResult(bots[i % 3], bots[(i + 1) % 3], GameResult.Winner.values()[i % 3]);
+            result.setDate(LocalDateTime.of(2024, 5, 1, 12, 0, i, 999));
+            store.add(result);
+        }
+        assertEquals(10, store.getTotal());
+        assertEquals(3, store.getRecentCount());
+        for (int index = 0; index < 3; index++) {
+            int i = 7 + index;
+            GameResult recent = store.getRecent(index);
+            assertEquals(bots[i % 3], recent.getPlayer0());
+            assertEquals(bots[(i + 1) % 3], recent.getPlayer1());
+            assertEquals(GameResult.Winner.values()[i % 3], recent.getWinner());
+            assertEquals(LocalDateTime.of(2024, 5, 1, 12, 0, i), recent.getDate());
+        }
+        assertTrue(store.toReport().startsWith("10 games"));
+
+        store.clear();
+        assertEquals(0, store.getRecentCount());
+        store.add(new GameResult(bots[2], bots[0], GameResult.Winner.tie));
+        assertEquals(1, store.getRecentCount());
+        assertEquals(bots[2], store.getRecent(0).getPlayer0());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void keepsNoResultsByDefault() {
+        ResultStore store = new ResultStore();
+        store.add(new GameResult("Random Dude", "Drunken Bot", GameResult.Winner.player0));
+        assertEquals(0, store.getRecentCount());
+        store.getRecent(0);
+    }
+}
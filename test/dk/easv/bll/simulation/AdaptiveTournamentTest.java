@@ -0,0 +1,43 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.DrunkenBot;
+import dk.easv.bll.bot.ExampleSneakyBot;
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.LocalPrioritisedListBot;
+import dk.easv.bll.bot.PrioListOnSteroids;
+import dk.easv.bll.bot.RandomBot;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The adaptive schedule must not spend the games of the tournament on pairings it can learn nothing more about.
+ */
+public class AdaptiveTournamentTest {
+
+    /**
+     * Three deterministic bots play the same two games in every pairing among them, each bot winning with one colour.
+     * Those pairings look perfectly even, which once made them take 160 of the 200 games.
+     */
+    @Test
+    public void doesNotReplayTheGamesOfDeterministicBots() {
+        List<Class<? extends IBot>> bots = Arrays.asList(DrunkenBot.class, LocalPrioritisedListBot.class,
+                PrioListOnSteroids.class, RandomBot.class, ExampleSneakyBot.class);
+        Tournament tournament = new Tournament(bots, 20, 1, 5);
+        tournament.setAdaptive(true);
+        tournament.setSeed(1);
+        TournamentResult result = tournament.run();
+        assertEquals(200, result.getGames());
+
+        long deterministic = result.getGames(0, 1) + result.getGames(0, 2) + result.getGames(1, 2);
+        // Four games each confirm the outcome of both colours, after that they are replays
+        assertTrue("Deterministic pairings played " + deterministic + " games", deterministic <= 12);
+        for (int i = 0; i < 3; i++)
+            for (int j = 3; j < 5; j++)
+                assertTrue(result.getGames(i, j) >= 4);
+    }
+}
@@ -0,0 +1,68 @@
+package dk.easv.bll.simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the ratings against values worked out by hand and against the equations the ratings must solve.
+ */
+public class BradleyTerryTest {
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void twoBotsSplitTheEloOfTheirScore() {
+        // 75 of 100 points plus the virtual draw: 75.5 / 101, which is 400 * log10(75.5 / 25.5) Elo
+        BradleyTerry ratings = new BradleyTerry(new double[][]{{0, 75}, {25, 0}}, new double[][]{{0, 100}, {100, 0}});
+        double[] elo = ratings.getElo();
+        assertEquals(188.56270847809324 / 2, elo[0], DELTA);
+        assertEquals(-188.56270847809324 / 2, elo[1], DELTA);
+    }
+
+    @Test
+    public void evenResultsGiveEqualRatings() {
+        double[][] score = {{0, 10, 10}, {10, 0, 10}, {10, 10, 0}};
+        double[][] games = {{0, 20, 20}, {20, 0, 20}, {20, 20, 0}};
+        for (double elo : new BradleyTerry(score, games).getElo())
+            assertEquals(0, elo, DELTA);
+    }
+
+    @Test
+    public void ratingsSolveTheLikelihoodEquations() {
+        double[][] score = {{0, 30, 45, 0}, {10, 0, 25, 0}, {5, 15, 0, 0}, {0, 0, 0, 0}};
+        double[][] games = {{0, 40, 50, 0}, {40, 0, 40, 0}, {50, 40, 0, 0}, {0, 0, 0, 0}};
+        BradleyTerry ratings = new BradleyTerry(score, games);
+        double[] elo = ratings.getElo();
+        double sum = 0;
+        for (int i = 0; i < 3; i++) {
+            // Every bot is expected to score what it scored, counting the virtual draws
+            double scored = 0;
+            double expected = 0;
+            for (int j = 0; j < 3; j++) {
+                if (i == j)
+                    continue;
+                scored += score[i][j] + 0.5;
+                expected += (games[i][j] + 1) / (1 + Math.pow(10, (elo[j] - elo[i]) / 400));
+            }
+            assertEquals(scored, expected, 1e-4);
+            sum += elo[i];
+        }
+        assertTrue(elo[0] > elo[1] && elo[1] > elo[2]);
+        // The bot that played no games is rated 0, with no bound on its error
+        assertEquals(0, sum + elo[3], DELTA);
+        assertEquals(0, elo[3], DELTA);
+        assertEquals(Double.POSITIVE_INFINITY, ratings.getError()[3], 0);
+    }
+
+    @Test
+    public void errorShrinksWithMoreGames() {
+        double[] few = new BradleyTerry(new double[][]{{0, 6}, {4, 0}}, new double[][]{{0, 10}, {10, 0}}).getError();
+        double[] many = new BradleyTerry(new double[][]{{0, 600}, {400, 0}},
+                new double[][]{{0, 1000}, {1000, 0}}).getError();
+        assertTrue(many[0] < few[0] / 5);
+        // p = 600.5 / 1001, 1001 * p * (1 - p) games of information
+        double p = 600.5 / 1001;
+        assertEquals(400 / Math.log(10) / Math.sqrt(1001 * p * (1 - p)), many[0], 1e-3);
+    }
+}
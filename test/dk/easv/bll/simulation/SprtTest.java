@@ -0,0 +1,76 @@
+package dk.easv.bll.simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the test against values worked out by hand from the formulas in Sprt.
+ */
+public class SprtTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void boundsFollowFromTheErrorRates() {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        // ln(0.05 / 0.95) and ln(0.95 / 0.05)
+        assertEquals(-2.9444389791664403, sprt.getLowerBound(), DELTA);
+        assertEquals(2.9444389791664403, sprt.getUpperBound(), DELTA);
+        Sprt uneven = new Sprt(0, 10, 0.1, 0.2);
+        assertEquals(Math.log(0.2 / 0.9), uneven.getLowerBound(), DELTA);
+        assertEquals(Math.log(0.8 / 0.1), uneven.getUpperBound(), DELTA);
+    }
+
+    @Test
+    public void llrOfKnownResults() {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        // 60 wins, 20 draws, 20 losses: mean 0.7, variance 0.16, expected scores 0.5 and 0.514387...
+        assertEquals(1.7337133119290997, sprt.llr(60, 20, 20), DELTA);
+        // Twice the games with the same scores give twice the LLR
+        assertEquals(2 * 1.7337133119290997, sprt.llr(120, 40, 40), DELTA);
+        assertEquals(0, sprt.llr(0, 0, 0), DELTA);
+        // An even score is evidence for elo0, losing more so
+        assertTrue(sprt.llr(50, 0, 50) < 0);
+        assertTrue(sprt.llr(20, 20, 60) < sprt.llr(50, 0, 50));
+    }
+
+    @Test
+    public void llrOfOneKindOfResultCountsAnExtraDraw() {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(sprt.llr(10, 1, 0), sprt.llr(10, 0, 0), DELTA);
+        assertEquals(sprt.llr(0, 1, 10), sprt.llr(0, 0, 10), DELTA);
+    }
+
+    @Test
+    public void decidesOnceABoundIsCrossed() {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(60, 20, 20));
+        assertEquals(Sprt.Decision.ACCEPT_H1, sprt.decide(120, 40, 40));
+        assertEquals(Sprt.Decision.ACCEPT_H0, sprt.decide(5000, 0, 5000));
+    }
+
+    @Test
+    public void parsesTheBoundsAndErrorRates() {
+        Sprt sprt = Sprt.parse("0, 10");
+        assertEquals(Math.log(0.05 / 0.95), sprt.getLowerBound(), DELTA);
+        Sprt rates = Sprt.parse("0 10 0.1 0.2");
+        assertEquals(Math.log(0.2 / 0.9), rates.getLowerBound(), DELTA);
+        assertEquals(Math.log(0.8 / 0.1), rates.getUpperBound(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsElo1BelowElo0() {
+        new Sprt(10, 0, 0.05, 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsErrorRatesOutsideZeroToOne() {
+        new Sprt(0, 10, 0, 0.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsThreeNumbers() {
+        Sprt.parse("0,10,0.05");
+    }
+}
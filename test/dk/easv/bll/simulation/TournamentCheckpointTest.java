@@ -0,0 +1,122 @@
+package dk.easv.bll.simulation;
+
+import dk.easv.bll.bot.DrunkenBot;
+import dk.easv.bll.bot.IBot;
+import dk.easv.bll.bot.RandomBot;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A tournament stopped halfway and resumed from its checkpoint must end up with every game played exactly once.
+ */
+public class TournamentCheckpointTest {
+    private static final List<Class<? extends IBot>> BOTS = Arrays.asList(RandomBot.class, DrunkenBot.class);
+    private static final int GAMES_PER_PAIRING = 40;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("tournament.ckpt");
+        TournamentCheckpoint written = new TournamentCheckpoint(new String[]{"a.Bot", "b.Bot"}, 20, true, 100, true,
+                42, 500, 0x1234_5678_9abcL, 98765, new long[]{0, 7, 9, 0}, new long[]{0, 4, 0, 0}, new long[]{0xff});
+        written.write(file);
+        TournamentCheckpoint read = TournamentCheckpoint.read(file);
+        assertTrue(read.isSameTournament(written));
+        assertArrayEquals(written.botClasses, read.botClasses);
+        assertEquals(98765, read.elapsedMillis);
+        assertArrayEquals(written.wins, read.wins);
+        assertArrayEquals(written.draws, read.draws);
+        assertArrayEquals(written.completed, read.completed);
+        assertEquals(written.describe(), read.describe());
+    }
+
+    @Test
+    public void resumesWithTheGamesThatWereNotDone() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("tournament.ckpt");
+        Tournament stopped = newTournament(7);
+        stopped.setCheckpoint(file, Long.MAX_VALUE);
+        AtomicInteger playedBefore = new AtomicInteger();
+        stopped.setOnGameResult(result -> {
+            if (playedBefore.incrementAndGet() == GAMES_PER_PAIRING / 4)
+                stopped.cancel();
+        });
+        try {
+            stopped.run();
+            fail("The cancelled tournament did not fail");
+        }
+        catch (IllegalStateException expected) {
+        }
+        TournamentResult before = stopped.snapshot();
+        assertEquals(playedBefore.get(), before.getGames());
+        assertTrue(before.getGames() < GAMES_PER_PAIRING);
+
+        Tournament resumed = newTournament(7);
+        resumed.setCheckpoint(file, Long.MAX_VALUE);
+        resumed.resume(file);
+        AtomicInteger playedAfter = new AtomicInteger();
+        resumed.setOnGameResult(result -> playedAfter.incrementAndGet());
+        TournamentResult after = resumed.run();
+        assertEquals(GAMES_PER_PAIRING - playedBefore.get(), playedAfter.get());
+        assertEquals(GAMES_PER_PAIRING, after.getGames());
+        // The results from before the stop are kept
+        assertTrue(after.getWins(0, 1) >= before.getWins(0, 1));
+        assertTrue(after.getWins(1, 0) >= before.getWins(1, 0));
+        assertTrue(after.getDraws(0, 1) >= before.getDraws(0, 1));
+
+        // A finished tournament resumed again has nothing left to play
+        Tournament again = newTournament(7);
+        again.resume(file);
+        again.setOnGameResult(result -> fail("Played a game that was done"));
+        assertEquals(GAMES_PER_PAIRING, again.run().getGames());
+    }
+
+    @Test
+    public void refusesACheckpointOfOtherSettings() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("tournament.ckpt");
+        Tournament finished = newTournament(7);
+        finished.setCheckpoint(file, Long.MAX_VALUE);
+        finished.run();
+
+        assertRefused(newTournament(8), file);
+        Tournament adaptive = newTournament(7);
+        adaptive.setAdaptive(true);
+        assertRefused(adaptive, file);
+        Tournament budget = newTournament(7);
+        budget.setPlayoutBudget(100);
+        assertRefused(budget, file);
+        Tournament moreGames = new Tournament(BOTS, GAMES_PER_PAIRING + 2, 1, 10);
+        moreGames.setSeed(7);
+        assertRefused(moreGames, file);
+    }
+
+    private static void assertRefused(Tournament tournament, Path file) throws IOException {
+        try {
+            tournament.resume(file);
+            fail("Resumed from a checkpoint of a different tournament");
+        }
+        catch (IllegalArgumentException expected) {
+            assertFalse(expected.getMessage().isEmpty());
+        }
+    }
+
+    private static Tournament newTournament(long seed) {
+        Tournament tournament = new Tournament(BOTS, GAMES_PER_PAIRING, 1, 10);
+        tournament.setSeed(seed);
+        return tournament;
+    }
+}
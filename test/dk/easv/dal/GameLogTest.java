@@ -0,0 +1,162 @@
+package dk.easv.dal;
+
+import dk.easv.bll.game.stats.GameResult;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Games written with GameLogWriter must read back unchanged with GameLogReader.
+ */
+public class GameLogTest {
+    private static final String[] BOTS = {"Random Dude", "RAVE MCTS", "Bot æøå"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("games.log");
+        List<Game> games = randomGames(new Random(1), 500);
+        try (GameLogWriter writer = new GameLogWriter(file)) {
+            for (Game game : games)
+                game.writeTo(writer);
+        }
+        assertEquals(games, readAll(file));
+    }
+
+    @Test
+    public void appendsToAnExistingLog() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("games.log");
+        List<Game> games = randomGames(new Random(2), 100);
+        try (GameLogWriter writer = new GameLogWriter(file)) {
+            for (Game game : games.subList(0, 40))
+                game.writeTo(writer);
+        }
+        try (GameLogWriter writer = new GameLogWriter(file)) {
+            for (Game game : games.subList(40, 100))
+                game.writeTo(writer);
+        }
+        assertEquals(games, readAll(file));
+    }
+
+    @Test
+    public void keepsEveryGameWrittenByManyThreads() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("games.log");
+        List<Game> games = randomGames(new Random(3), 4000);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try (GameLogWriter writer = new GameLogWriter(file)) {
+            for (Game game : games)
+                threads.execute(() -> game.writeTo(writer));
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        List<Game> read = readAll(file);
+        assertEquals(games.size(), read.size());
+        assertTrue(read.containsAll(games));
+    }
+
+    @Test
+    public void rejectsAFileThatIsNotAGameLog() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("other.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        try {
+            new GameLogWriter(file).close();
+            fail("Appended to a file that is not a game log");
+        }
+        catch (IOException expected) {
+        }
+    }
+
+    private static List<Game> readAll(Path file) throws IOException {
+        List<Game> games = new ArrayList<>();
+        try (GameLogReader reader = new GameLogReader(file)) {
+            while (reader.next()) {
+                byte[] moves = new byte[reader.getMoveCount()];
+                for (int i = 0; i < moves.length; i++)
+                    moves[i] = (byte) reader.getMove(i);
+                games.add(new Game(reader.getBotName(reader.getPlayer0()), reader.getBotName(reader.getPlayer1()),
+                        GameResult.Winner.values()[reader.getWinner()], reader.getSeed(),
+                        reader.getDurationMicros() * 1000L, moves));
+            }
+            assertFalse(reader.next());
+        }
+        return games;
+    }
+
+    private static List<Game> randomGames(Random rand, int count) {
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] moves = new byte[17 + rand.nextInt(65)];
+            for (int m = 0; m < moves.length; m++)
+                moves[m] = (byte) rand.nextInt(81);
+            games.add(new Game(BOTS[rand.nextInt(BOTS.length)], BOTS[rand.nextInt(BOTS.length)],
+                    GameResult.Winner.values()[rand.nextInt(3)], rand.nextLong(),
+                    rand.nextInt(5_000_000) * 1000L, moves));
+        }
+        return games;
+    }
+
+    private static final class Game {
+        final String player0;
+        final String player1;
+        final GameResult.Winner winner;
+        final long seed;
+        final long nanos;
+        final byte[] moves;
+
+        Game(String player0, String player1, GameResult.Winner winner, long seed, long nanos, byte[] moves) {
+            this.player0 = player0;
+            this.player1 = player1;
+            this.winner = winner;
+            this.seed = seed;
+            this.nanos = nanos;
+            this.moves = moves;
+        }
+
+        void writeTo(GameLogWriter writer) {
+            writer.record(player0, player1, winner, seed, nanos, moves);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Game))
+                return false;
+            Game game = (Game) other;
+            try {
+                assertArrayEquals(moves, game.moves);
+            }
+            catch (AssertionError ex) {
+                return false;
+            }
+            return player0.equals(game.player0) && player1.equals(game.player1) && winner == game.winner
+                    && seed == game.seed && nanos == game.nanos;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(seed);
+        }
+
+        @Override
+        public String toString() {
+            return player0 + " vs " + player1 + " " + winner + " seed " + seed;
+        }
+    }
+}